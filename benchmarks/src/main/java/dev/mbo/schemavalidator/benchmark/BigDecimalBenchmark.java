@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import dev.mbo.schemavalidator.FieldCheck;
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.ViolationSink;
+import dev.mbo.schemavalidator.fieldvalidator.BigDecimalFieldValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BigDecimalFieldValidator} parsing decimal strings against integer bounds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BigDecimalBenchmark {
+
+  @Param({"VALID", "INVALID_10", "INVALID_ALL"})
+  private Workloads.Mix mix;
+
+  private final ViolationSink sink = new ViolationSink(1);
+  private FieldCheck check;
+  private String[] values;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    check = new BigDecimalFieldValidator().bind(
+      FieldDefinition.builder().type(BigDecimal.class.getSimpleName()).nullable(false).minValue(0L)
+        .maxValue(1_000_000L).build()
+    );
+    values = new String[Workloads.POOL_SIZE];
+    for (var i = 0; i < values.length; i++) {
+      values[i] = mix.isInvalid(i) ? "-" + (i + 1) + ".25" : (i * 997) + "." + (i % 100);
+    }
+  }
+
+  @Benchmark
+  public boolean check() {
+    final var value = values[next];
+    next = (next + 1) % values.length;
+    final var valid = check.check("amount", value, sink);
+    sink.clear();
+    return valid;
+  }
+}
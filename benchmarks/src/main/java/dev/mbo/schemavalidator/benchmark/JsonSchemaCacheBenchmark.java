@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import com.networknt.schema.JsonSchema;
+import dev.mbo.schemavalidator.JsonSchemaCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JsonSchemaCache} hits, misses and expiry with several threads sharing one cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JsonSchemaCacheBenchmark {
+
+  static final String SCHEMA = "{\"type\": \"object\", \"properties\": {"
+    + "\"name\": {\"type\": \"string\", \"minLength\": 1}, "
+    + "\"age\": {\"type\": \"integer\", \"minimum\": 0}}, "
+    + "\"required\": [\"name\", \"age\"]}";
+
+  @State(Scope.Benchmark)
+  public static class SharedCache {
+    final JsonSchemaCache cache = new JsonSchemaCache();
+    // a timeout of 0 makes every entry expire right after it was compiled
+    final JsonSchemaCache expiringCache = new JsonSchemaCache(128, 0);
+    final AtomicLong counter = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+      cache.getOrAdd(SCHEMA);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadLocalSchema {
+    // an equal but distinct instance, like a schema read from a database
+    String schema;
+
+    @Setup
+    public void setUp() {
+      schema = new String(SCHEMA);
+    }
+  }
+
+  @Benchmark
+  public JsonSchema hit(
+    final SharedCache shared,
+    final ThreadLocalSchema local
+  ) {
+    return shared.cache.getOrAdd(local.schema);
+  }
+
+  @Benchmark
+  public JsonSchema miss(final SharedCache shared) {
+    final var title = shared.counter.incrementAndGet();
+    return shared.cache.getOrAdd("{\"title\": \"" + title + "\", " + SCHEMA.substring(1));
+  }
+
+  @Benchmark
+  public JsonSchema expiry(
+    final SharedCache shared,
+    final ThreadLocalSchema local
+  ) {
+    return shared.expiringCache.getOrAdd(local.schema);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.ValidateSchema;
+import dev.mbo.schemavalidator.ValidateSchemaValidator;
+import dev.mbo.schemavalidator.ValidateType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ValidateSchemaValidator#isValid} for MAP schemas of different shapes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapValidationBenchmark {
+
+  @Param({"FLAT", "NESTED", "WIDE"})
+  private Workloads.Shape shape;
+
+  @Param({"VALID", "INVALID_10", "INVALID_ALL"})
+  private Workloads.Mix mix;
+
+  private final ValidateSchemaValidator validator = new ValidateSchemaValidator();
+  private Target[] targets;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    validator.initialize(Target.class.getAnnotation(ValidateSchema.class));
+    final var schema = Workloads.schema(shape);
+    final var records = Workloads.records(shape, mix);
+    targets = new Target[records.size()];
+    for (var i = 0; i < targets.length; i++) {
+      targets[i] = new Target(schema, records.get(i));
+    }
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    final var target = targets[next];
+    next = (next + 1) % targets.length;
+    return validator.isValid(target, null);
+  }
+
+  @ValidateSchema(
+    type = ValidateType.MAP,
+    schemaFieldName = "schema",
+    dataFieldName = "data"
+  )
+  public static class Target {
+    private final Map<String, FieldDefinition> schema;
+    private final Map<String, Object> data;
+
+    Target(
+      final Map<String, FieldDefinition> schema,
+      final Map<String, Object> data
+    ) {
+      this.schema = schema;
+      this.data = data;
+    }
+  }
+}
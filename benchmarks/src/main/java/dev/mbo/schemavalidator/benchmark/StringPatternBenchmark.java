@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import dev.mbo.schemavalidator.FieldCheck;
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.ViolationSink;
+import dev.mbo.schemavalidator.fieldvalidator.StringFieldValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StringFieldValidator} with patterns of different complexity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringPatternBenchmark {
+
+  @Param({"[a-z0-9_]{3,32}", "[A-Z]{2}-[0-9]{4}", "^[\\w.+-]+@[\\w-]+\\.[a-z]{2,}$"})
+  private String pattern;
+
+  @Param({"VALID", "INVALID_10", "INVALID_ALL"})
+  private Workloads.Mix mix;
+
+  private final ViolationSink sink = new ViolationSink(1);
+  private FieldCheck check;
+  private String[] values;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    check = new StringFieldValidator().bind(
+      FieldDefinition.builder().type(String.class.getSimpleName()).pattern(pattern).build()
+    );
+    values = new String[Workloads.POOL_SIZE];
+    for (var i = 0; i < values.length; i++) {
+      values[i] = mix.isInvalid(i) ? "in valid!" + i : validValue(i);
+    }
+  }
+
+  private String validValue(final int i) {
+    if (pattern.startsWith("[a-z0-9_]")) {
+      return "user_" + i;
+    } else if (pattern.startsWith("[A-Z]")) {
+      return "AB-" + (1000 + i);
+    }
+    return "user." + i + "@example.com";
+  }
+
+  @Benchmark
+  public boolean check() {
+    final var value = values[next];
+    next = (next + 1) % values.length;
+    final var valid = check.check("key", value, sink);
+    sink.clear();
+    return valid;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.mbo.schemavalidator.ValidateSchemaValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting the data into a tree for JSON_SCHEMA validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueToTreeBenchmark {
+
+  @Param({"FLAT", "WIDE"})
+  private Workloads.Shape shape;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private Map<String, Object> data;
+  private byte[] json;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    data = Workloads.records(shape, Workloads.Mix.VALID).get(0);
+    json = objectMapper.writeValueAsBytes(data);
+  }
+
+  @Benchmark
+  public JsonNode valueToTree() {
+    return objectMapper.valueToTree(data);
+  }
+
+  @Benchmark
+  public JsonNode readTree() throws IOException {
+    return objectMapper.readTree(json);
+  }
+
+  @Benchmark
+  public boolean validateMap() {
+    return ValidateSchemaValidator.validateJson(JsonSchemaCacheBenchmark.SCHEMA, objectMapper.<JsonNode>valueToTree(data))
+      .isEmpty();
+  }
+
+  @Benchmark
+  public boolean validateBytes() {
+    return ValidateSchemaValidator.validateJson(JsonSchemaCacheBenchmark.SCHEMA, json).isEmpty();
+  }
+}
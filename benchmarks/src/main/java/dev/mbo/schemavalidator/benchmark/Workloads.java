@@ -0,0 +1,178 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.benchmark;
+
+import dev.mbo.schemavalidator.FieldDefinition;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schemas and record pools shared by the benchmarks.
+ */
+public final class Workloads {
+
+  static final int POOL_SIZE = 100;
+
+  public enum Shape {
+    FLAT,
+    NESTED,
+    WIDE
+  }
+
+  public enum Mix {
+    VALID(0),
+    INVALID_10(10),
+    INVALID_ALL(POOL_SIZE);
+
+    private final int invalidPerHundred;
+
+    Mix(final int invalidPerHundred) {
+      this.invalidPerHundred = invalidPerHundred;
+    }
+
+    // spreads the invalid records evenly over the pool
+    boolean isInvalid(final int index) {
+      return (index * invalidPerHundred) % POOL_SIZE < invalidPerHundred;
+    }
+  }
+
+  static Map<String, FieldDefinition> schema(final Shape shape) {
+    switch (shape) {
+      case FLAT:
+        return flatSchema();
+      case NESTED:
+        return nestedSchema(5);
+      case WIDE:
+        return wideSchema(200);
+      default:
+        throw new IllegalArgumentException(shape.name());
+    }
+  }
+
+  static List<Map<String, Object>> records(
+    final Shape shape,
+    final Mix mix
+  ) {
+    final var records = new ArrayList<Map<String, Object>>(POOL_SIZE);
+    for (var i = 0; i < POOL_SIZE; i++) {
+      final var invalid = mix.isInvalid(i);
+      switch (shape) {
+        case FLAT:
+          records.add(flatRecord(i, invalid));
+          break;
+        case NESTED:
+          records.add(nestedRecord(5, i, invalid));
+          break;
+        case WIDE:
+          records.add(wideRecord(200, i, invalid));
+          break;
+        default:
+          throw new IllegalArgumentException(shape.name());
+      }
+    }
+    return records;
+  }
+
+  private static Map<String, FieldDefinition> flatSchema() {
+    return Map.of(
+      "name", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build(),
+      "age", FieldDefinition.builder().type(Integer.class.getSimpleName()).nullable(false).minValue(0L).build(),
+      "time", FieldDefinition.builder().type(Long.class.getSimpleName()).nullable(false).build(),
+      "zero", FieldDefinition.builder().type(Double.class.getSimpleName()).nullable(false).build(),
+      "salary", FieldDefinition.builder().type(BigDecimal.class.getSimpleName()).nullable(false).minValue(0L)
+        .maxValue(10000L).build(),
+      "code", FieldDefinition.builder().type(String.class.getSimpleName()).pattern("[A-Z]{2}-[0-9]{4}").build()
+    );
+  }
+
+  private static Map<String, Object> flatRecord(
+    final int i,
+    final boolean invalid
+  ) {
+    return Map.of(
+      "name", "name" + i,
+      "age", invalid ? -i - 1 : i,
+      "time", 1_600_000_000_000L + i,
+      "zero", 0.0,
+      "salary", (1000 + i) + ".50",
+      "code", "AB-" + (1000 + i)
+    );
+  }
+
+  private static Map<String, FieldDefinition> nestedSchema(final int depth) {
+    final var schema = new HashMap<String, FieldDefinition>();
+    schema.put("name", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build());
+    schema.put("count", FieldDefinition.builder().type(Integer.class.getSimpleName()).minValue(0L).build());
+    if (depth > 0) {
+      schema.put("child", FieldDefinition.builder().type(Object.class.getSimpleName()).nested(nestedSchema(depth - 1))
+        .build());
+    }
+    return schema;
+  }
+
+  // invalid records fail at the deepest level
+  private static Map<String, Object> nestedRecord(
+    final int depth,
+    final int i,
+    final boolean invalid
+  ) {
+    final var record = new HashMap<String, Object>();
+    record.put("name", "level" + depth);
+    record.put("count", invalid && depth == 0 ? -1 : i);
+    if (depth > 0) {
+      record.put("child", nestedRecord(depth - 1, i, invalid));
+    }
+    return record;
+  }
+
+  private static Map<String, FieldDefinition> wideSchema(final int width) {
+    final var schema = new HashMap<String, FieldDefinition>();
+    for (var f = 0; f < width; f++) {
+      if (f % 2 == 0) {
+        schema.put("s" + f, FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build());
+      } else {
+        schema.put("i" + f, FieldDefinition.builder().type(Integer.class.getSimpleName()).minValue(0L).build());
+      }
+    }
+    return schema;
+  }
+
+  // invalid records fail at the last integer field
+  private static Map<String, Object> wideRecord(
+    final int width,
+    final int i,
+    final boolean invalid
+  ) {
+    final var record = new HashMap<String, Object>();
+    for (var f = 0; f < width; f++) {
+      if (f % 2 == 0) {
+        record.put("s" + f, "value" + i);
+      } else {
+        record.put("i" + f, invalid && f == width - 1 ? -1 : i);
+      }
+    }
+    return record;
+  }
+
+  private Workloads() {
+    throw new IllegalAccessError();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.micrometer;
+
+import dev.mbo.schemavalidator.JsonSchemaCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+
+/**
+ * Exposes the statistics of a {@link JsonSchemaCache}: <code>schema.cache.gets</code> (tag result hit/miss),
+ * <code>schema.cache.evictions</code>, <code>schema.cache.compile.time</code> and <code>schema.cache.size</code>.
+ * The values are read when the registry publishes, validation doesn't pay for it.
+ */
+public class JsonSchemaCacheMetrics implements MeterBinder {
+
+  private final JsonSchemaCache cache;
+  private final Iterable<Tag> tags;
+
+  public JsonSchemaCacheMetrics(final JsonSchemaCache cache) {
+    this(cache, List.of());
+  }
+
+  public JsonSchemaCacheMetrics(
+    final JsonSchemaCache cache,
+    final Iterable<Tag> tags
+  ) {
+    this.cache = cache;
+    this.tags = tags;
+  }
+
+  @Override
+  public void bindTo(final MeterRegistry registry) {
+    FunctionCounter.builder("schema.cache.gets", cache, JsonSchemaCache::hitCount)
+      .tags(tags)
+      .tag("result", "hit")
+      .register(registry);
+    FunctionCounter.builder("schema.cache.gets", cache, JsonSchemaCache::missCount)
+      .tags(tags)
+      .tag("result", "miss")
+      .register(registry);
+    FunctionCounter.builder("schema.cache.evictions", cache, JsonSchemaCache::evictionCount)
+      .tags(tags)
+      .register(registry);
+    FunctionCounter.builder("schema.cache.compile.time", cache, c -> c.compileTimeNanos() / 1e9)
+      .tags(tags)
+      .baseUnit("seconds")
+      .register(registry);
+    Gauge.builder("schema.cache.size", cache, JsonSchemaCache::size)
+      .tags(tags)
+      .register(registry);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.micrometer;
+
+import dev.mbo.schemavalidator.ValidateType;
+import dev.mbo.schemavalidator.ValidationMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records validations into a Micrometer registry:
+ * <ul>
+ *   <li><code>schema.validation</code> timer with percentile histogram, tags schema, type and outcome</li>
+ *   <li><code>schema.validation.violations</code> counter, tags schema and rule</li>
+ *   <li><code>schema.validation.fields</code> distribution summary of top level fields, tag schema</li>
+ * </ul>
+ * Meters are looked up once per schema and kept, schema names are class names so their number is bounded. The timers
+ * of a type are created together, so recording a validation doesn't build a key.
+ */
+public class MicrometerValidationMetrics implements ValidationMetrics {
+
+  private static final ValidateType[] TYPES = ValidateType.values();
+
+  private final MeterRegistry registry;
+  private final ConcurrentHashMap<String, SchemaMeters> meters = new ConcurrentHashMap<>();
+
+  public MicrometerValidationMetrics(final MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void validated(
+    final String schema,
+    final ValidateType type,
+    final boolean valid,
+    final long nanos
+  ) {
+    meters(schema).timer(type, valid).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void violation(
+    final String schema,
+    final String rule
+  ) {
+    meters(schema).violations(rule).increment();
+  }
+
+  @Override
+  public void fieldCount(
+    final String schema,
+    final int fields
+  ) {
+    meters(schema).fields.record(fields);
+  }
+
+  private SchemaMeters meters(final String schema) {
+    final var existing = meters.get(schema);
+    return null != existing ? existing : meters.computeIfAbsent(schema, SchemaMeters::new);
+  }
+
+  private final class SchemaMeters {
+
+    private final String schema;
+    // per ValidateType ordinal, the last slot is for an unknown type
+    private final AtomicReferenceArray<OutcomeTimers> timers = new AtomicReferenceArray<>(TYPES.length + 1);
+    private final ConcurrentHashMap<String, Counter> violations = new ConcurrentHashMap<>();
+    private final DistributionSummary fields;
+
+    private SchemaMeters(final String schema) {
+      this.schema = schema;
+      this.fields = DistributionSummary.builder("schema.validation.fields")
+        .tag("schema", schema)
+        .register(registry);
+    }
+
+    private Timer timer(
+      final ValidateType type,
+      final boolean valid
+    ) {
+      final var index = null == type ? TYPES.length : type.ordinal();
+      var outcome = timers.get(index);
+      if (null == outcome) {
+        // the registry returns the same timers to a thread that loses the race
+        timers.compareAndSet(index, null, new OutcomeTimers(schema, null == type ? "unknown" : type.name()));
+        outcome = timers.get(index);
+      }
+      return valid ? outcome.valid : outcome.invalid;
+    }
+
+    private Counter violations(final String rule) {
+      final var existing = violations.get(rule);
+      return null != existing ? existing : violations.computeIfAbsent(rule, r -> Counter.builder(
+          "schema.validation.violations")
+        .tag("schema", schema)
+        .tag("rule", r)
+        .register(registry));
+    }
+  }
+
+  private final class OutcomeTimers {
+
+    private final Timer valid;
+    private final Timer invalid;
+
+    private OutcomeTimers(
+      final String schema,
+      final String type
+    ) {
+      this.valid = timer(schema, type, "valid");
+      this.invalid = timer(schema, type, "invalid");
+    }
+
+    private Timer timer(
+      final String schema,
+      final String type,
+      final String outcome
+    ) {
+      return Timer.builder("schema.validation")
+        .tag("schema", schema)
+        .tag("type", type)
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(registry);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator.micrometer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.mbo.schemavalidator.JsonSchemaCache;
+import dev.mbo.schemavalidator.ValidatorEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonSchemaCacheMetricsTest {
+
+  private static final String SCHEMA = "{\"type\":\"object\",\"required\":[\"a\"]}";
+
+  @Test
+  void engineValidations() {
+    final var cache = new JsonSchemaCache();
+    final var engine = ValidatorEngine.builder().jsonSchemaCache(cache).warmUp(false).build();
+    final var registry = new SimpleMeterRegistry();
+    new JsonSchemaCacheMetrics(cache).bindTo(registry);
+
+    final var data = new ObjectMapper().createObjectNode();
+    for (var i = 0; i < 3; i++) {
+      assertThat(engine.validateJson(SCHEMA, data)).hasSize(1);
+    }
+
+    assertThat(registry.get("schema.cache.gets").tags("result", "miss").functionCounter().count()).isEqualTo(1);
+    // repeated validations of the engine are cache hits too
+    assertThat(registry.get("schema.cache.gets").tags("result", "hit").functionCounter().count()).isEqualTo(2);
+    assertThat(registry.get("schema.cache.size").gauge().value()).isEqualTo(1);
+    assertThat(registry.get("schema.cache.compile.time").functionCounter().count()).isPositive();
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator.micrometer;
+
+import dev.mbo.schemavalidator.ValidateType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicrometerValidationMetricsTest {
+
+  @Test
+  void timersPerTypeAndOutcome() {
+    final var registry = new SimpleMeterRegistry();
+    final var metrics = new MicrometerValidationMetrics(registry);
+    metrics.validated("a.Order", ValidateType.MAP, true, 1_000);
+    metrics.validated("a.Order", ValidateType.MAP, true, 3_000);
+    metrics.validated("a.Order", ValidateType.MAP, false, 2_000);
+    metrics.validated("a.Order", null, false, 1_000);
+    metrics.validated("b.Order", ValidateType.MAP, true, 1_000);
+
+    final var valid = registry.get("schema.validation")
+      .tags("schema", "a.Order", "type", "MAP", "outcome", "valid")
+      .timer();
+    assertThat(valid.count()).isEqualTo(2);
+    assertThat(valid.totalTime(TimeUnit.NANOSECONDS)).isEqualTo(4_000);
+    assertThat(registry.get("schema.validation")
+      .tags("schema", "a.Order", "type", "MAP", "outcome", "invalid")
+      .timer().count()).isEqualTo(1);
+    assertThat(registry.get("schema.validation")
+      .tags("schema", "a.Order", "type", "unknown", "outcome", "invalid")
+      .timer().count()).isEqualTo(1);
+    assertThat(registry.get("schema.validation")
+      .tags("schema", "b.Order", "outcome", "valid")
+      .timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void violationsAndFields() {
+    final var registry = new SimpleMeterRegistry();
+    final var metrics = new MicrometerValidationMetrics(registry);
+    metrics.violation("a.Order", "required");
+    metrics.violation("a.Order", "required");
+    metrics.violation("a.Order", "pattern");
+    metrics.fieldCount("a.Order", 3);
+    metrics.fieldCount("a.Order", 5);
+
+    assertThat(registry.get("schema.validation.violations").tags("rule", "required").counter().count())
+      .isEqualTo(2);
+    assertThat(registry.get("schema.validation.violations").tags("rule", "pattern").counter().count())
+      .isEqualTo(1);
+    final var fields = registry.get("schema.validation.fields").tags("schema", "a.Order").summary();
+    assertThat(fields.count()).isEqualTo(2);
+    assertThat(fields.totalAmount()).isEqualTo(8);
+  }
+
+}
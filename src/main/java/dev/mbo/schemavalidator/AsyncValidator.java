@@ -0,0 +1,321 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.schema.ValidationMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade of a {@link ValidatorEngine} for event loop threads. Validations against an already compiled
+ * schema with a small payload run inline and return a completed future. Compiling a schema and validating large
+ * payloads is handed to a bounded executor; when its queue is full the future fails with a
+ * {@link RejectedExecutionException} instead of blocking the caller.
+ * <p>
+ * Validation errors never fail a future, they are part of its result. Futures only fail on broken configuration or
+ * unparsable data ({@link IllegalStateException}) and rejected work.
+ */
+public final class AsyncValidator implements AutoCloseable {
+
+  public static final int DEFAULT_INLINE_MAX_FIELDS = 64;
+  public static final int DEFAULT_INLINE_MAX_BYTES = 4096;
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  public static final int DEFAULT_MAX_VIOLATIONS = 100;
+
+  private final ValidatorEngine engine;
+  private final Executor executor;
+  // only shut down on close if this validator created it
+  private final ExecutorService ownExecutor;
+  private final int inlineMaxFields;
+  private final int inlineMaxBytes;
+  private final int maxViolations;
+  private final int streamWindow;
+
+  private AsyncValidator(final Builder builder) {
+    this.engine = null == builder.engine ? ValidateSchemaValidator.defaultEngine() : builder.engine;
+    this.ownExecutor = null == builder.executor
+      ? boundedExecutor(Runtime.getRuntime().availableProcessors(), builder.queueCapacity)
+      : null;
+    this.executor = null == builder.executor ? ownExecutor : builder.executor;
+    this.inlineMaxFields = builder.inlineMaxFields;
+    this.inlineMaxBytes = builder.inlineMaxBytes;
+    this.maxViolations = builder.maxViolations;
+    this.streamWindow = builder.streamWindow;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A thread pool with a bounded queue that rejects work when it's full. Its threads are virtual if the runtime
+   * supports them (Java 21+) and platform daemon threads otherwise.
+   */
+  public static ExecutorService boundedExecutor(
+    final int threads,
+    final int queueCapacity
+  ) {
+    final var pool = new ThreadPoolExecutor(
+      threads,
+      threads,
+      30,
+      TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(queueCapacity),
+      threadFactory()
+    );
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  // looked up reflectively, the library is compiled for Java 11
+  static ThreadFactory threadFactory() {
+    try {
+      final var builderType = Class.forName("java.lang.Thread$Builder");
+      var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "schema-validator-", 0L);
+      return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    } catch (final ReflectiveOperationException | RuntimeException exc) {
+      final var count = new AtomicInteger();
+      return runnable -> {
+        final var thread = new Thread(runnable, "schema-validator-" + count.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      };
+    }
+  }
+
+  public ValidatorEngine engine() {
+    return engine;
+  }
+
+  /**
+   * Validates a MAP record, inline if the schema is compiled already and the record has at most
+   * <code>inlineMaxFields</code> top-level fields.
+   *
+   * @return Violations, empty if the record is valid.
+   */
+  public CompletableFuture<List<Violation>> validateMap(
+    final Map<String, FieldDefinition> schema,
+    final Map<String, Object> data
+  ) {
+    final Supplier<List<Violation>> validation = () -> violations(schema, data);
+    return engine.isCompiled(schema) && data.size() <= inlineMaxFields ? inline(validation) : offload(validation);
+  }
+
+  /**
+   * Validates a parsed tree, inline if the schema is compiled already and the tree has at most
+   * <code>inlineMaxFields</code> top-level fields.
+   */
+  public CompletableFuture<Set<ValidationMessage>> validateJson(
+    final String jsonSchema,
+    final JsonNode jsonData
+  ) {
+    final Supplier<Set<ValidationMessage>> validation = () -> engine.validateJson(jsonSchema, jsonData);
+    return engine.isJsonSchemaCompiled(jsonSchema) && jsonData.size() <= inlineMaxFields
+      ? inline(validation)
+      : offload(validation);
+  }
+
+  /**
+   * Parses and validates raw JSON, inline if the schema is compiled already and the data has at most
+   * <code>inlineMaxBytes</code> bytes.
+   */
+  public CompletableFuture<Set<ValidationMessage>> validateJson(
+    final String jsonSchema,
+    final byte[] json
+  ) {
+    final Supplier<Set<ValidationMessage>> validation = () -> engine.validateJson(jsonSchema, json);
+    return engine.isJsonSchemaCompiled(jsonSchema) && json.length <= inlineMaxBytes
+      ? inline(validation)
+      : offload(validation);
+  }
+
+  /**
+   * Compiles a JSON schema into the cache of the engine, e.g. ahead of the first request for it. Completes inline if
+   * it's compiled already.
+   */
+  public CompletableFuture<SchemaHandle> compileJson(final String jsonSchema) {
+    final Supplier<SchemaHandle> compilation = () -> engine.schemaHandle(jsonSchema);
+    return engine.isJsonSchemaCompiled(jsonSchema) ? inline(compilation) : offload(compilation);
+  }
+
+  /**
+   * Validates a stream of MAP records with backpressure: records are only requested from <code>records</code> as
+   * results are requested by the subscriber, and at most <code>streamWindow</code> of them are validated at the same
+   * time. A record the executor rejects is validated on the thread that delivered it. Results are published in the
+   * order of the records. A failed validation cancels <code>records</code> and ends the stream with its exception.
+   */
+  public Flow.Publisher<ValidationResult> validateAll(
+    final Map<String, FieldDefinition> schema,
+    final Flow.Publisher<? extends Map<String, Object>> records
+  ) {
+    return new ValidationPublisher(records, data -> validateRecord(schema, data), streamWindow);
+  }
+
+  // like validateMap, but a full executor runs the validation on the calling thread instead of failing the stream
+  private CompletableFuture<List<Violation>> validateRecord(
+    final Map<String, FieldDefinition> schema,
+    final Map<String, Object> data
+  ) {
+    final Supplier<List<Violation>> validation = () -> violations(schema, data);
+    if (engine.isCompiled(schema) && data.size() <= inlineMaxFields) {
+      return inline(validation);
+    }
+    try {
+      return CompletableFuture.supplyAsync(validation, executor);
+    } catch (final RejectedExecutionException exc) {
+      return inline(validation);
+    }
+  }
+
+  /**
+   * Shuts down the executor if it was created by this validator. Queued work still runs.
+   */
+  @Override
+  public void close() {
+    if (null != ownExecutor) {
+      ownExecutor.shutdown();
+    }
+  }
+
+  private List<Violation> violations(
+    final Map<String, FieldDefinition> schema,
+    final Map<String, Object> data
+  ) {
+    try (final var sink = ViolationSink.acquire(maxViolations)) {
+      engine.compile(schema).validate(data, sink);
+      return sink.violations();
+    }
+  }
+
+  private static <T> CompletableFuture<T> inline(final Supplier<T> supplier) {
+    try {
+      return CompletableFuture.completedFuture(supplier.get());
+    } catch (final RuntimeException exc) {
+      return CompletableFuture.failedFuture(exc);
+    }
+  }
+
+  private <T> CompletableFuture<T> offload(final Supplier<T> supplier) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (final RejectedExecutionException exc) {
+      return CompletableFuture.failedFuture(exc);
+    }
+  }
+
+  public static final class Builder {
+
+    private ValidatorEngine engine;
+    private Executor executor;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int inlineMaxFields = DEFAULT_INLINE_MAX_FIELDS;
+    private int inlineMaxBytes = DEFAULT_INLINE_MAX_BYTES;
+    private int maxViolations = DEFAULT_MAX_VIOLATIONS;
+    private int streamWindow = 2 * Runtime.getRuntime().availableProcessors();
+
+    private Builder() {
+    }
+
+    /**
+     * @param engine Engine to validate with, the default engine if not set.
+     */
+    public Builder engine(final ValidatorEngine engine) {
+      this.engine = engine;
+      return this;
+    }
+
+    /**
+     * @param executor Executor for offloaded work. If not set a {@link #boundedExecutor(int, int)} with one thread
+     *                 per processor is created and shut down on {@link #close()}.
+     */
+    public Builder executor(final Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    // queue of the created executor
+    public Builder queueCapacity(final int queueCapacity) {
+      if (queueCapacity < 1) {
+        throw new IllegalArgumentException("invalid queueCapacity " + queueCapacity);
+      }
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * @param inlineMaxFields Maximum top-level fields of a record or tree validated inline.
+     */
+    public Builder inlineMaxFields(final int inlineMaxFields) {
+      if (inlineMaxFields < 0) {
+        throw new IllegalArgumentException("invalid inlineMaxFields " + inlineMaxFields);
+      }
+      this.inlineMaxFields = inlineMaxFields;
+      return this;
+    }
+
+    /**
+     * @param inlineMaxBytes Maximum size of raw JSON validated inline.
+     */
+    public Builder inlineMaxBytes(final int inlineMaxBytes) {
+      if (inlineMaxBytes < 0) {
+        throw new IllegalArgumentException("invalid inlineMaxBytes " + inlineMaxBytes);
+      }
+      this.inlineMaxBytes = inlineMaxBytes;
+      return this;
+    }
+
+    // per MAP record
+    public Builder maxViolations(final int maxViolations) {
+      if (maxViolations < 1) {
+        throw new IllegalArgumentException("invalid maxViolations " + maxViolations);
+      }
+      this.maxViolations = maxViolations;
+      return this;
+    }
+
+    /**
+     * @param streamWindow Maximum records of one {@link #validateAll(Map, Flow.Publisher)} stream that are validated at
+     *                     the same time, whatever the subscriber requests. Two per processor by default.
+     */
+    public Builder streamWindow(final int streamWindow) {
+      if (streamWindow < 1) {
+        throw new IllegalArgumentException("invalid streamWindow " + streamWindow);
+      }
+      this.streamWindow = streamWindow;
+      return this;
+    }
+
+    public AsyncValidator build() {
+      return new AsyncValidator(this);
+    }
+  }
+}
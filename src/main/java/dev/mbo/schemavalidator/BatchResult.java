@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Outcome of a batch validation: one bit per record plus the violation of every invalid record. Violations are kept
+ * in arrays sorted by record index, so a result costs no more than one reference per invalid record.
+ */
+public final class BatchResult {
+
+  private final int size;
+  private final BitSet invalid;
+  // ascending record indexes of the violations
+  private final int[] indexes;
+  private final Violation[] violations;
+
+  BatchResult(
+    final int size,
+    final BitSet invalid,
+    final int[] indexes,
+    final Violation[] violations
+  ) {
+    this.size = size;
+    this.invalid = invalid;
+    this.indexes = indexes;
+    this.violations = violations;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isValid(final int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return !invalid.get(index);
+  }
+
+  public boolean allValid() {
+    return invalid.isEmpty();
+  }
+
+  public int invalidCount() {
+    return invalid.cardinality();
+  }
+
+  /**
+   * @return Copy of the bitmap with a set bit for every invalid record.
+   */
+  public BitSet invalidRecords() {
+    return (BitSet) invalid.clone();
+  }
+
+  public Optional<Violation> violation(final int index) {
+    final var position = Arrays.binarySearch(indexes, index);
+    return position < 0 ? Optional.empty() : Optional.of(violations[position]);
+  }
+
+  /**
+   * @return Copy of the indexes of the invalid records in ascending order, matching {@link #violations()}.
+   */
+  public int[] invalidIndexes() {
+    return indexes.clone();
+  }
+
+  /**
+   * @return Violation of every invalid record ordered by record index, see {@link #invalidIndexes()}.
+   */
+  public List<Violation> violations() {
+    return Collections.unmodifiableList(Arrays.asList(violations));
+  }
+}
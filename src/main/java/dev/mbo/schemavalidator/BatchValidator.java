@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Validates many records against one {@link CompiledSchema}. Records are split into chunks that are validated in
+ * parallel on the given executor; each chunk writes into its own result so workers don't share any mutable state.
+ * <p>
+ * Random access lists are split up front. Streams and other iterables are read in chunks of
+ * {@value #STREAM_CHUNK_SIZE} records while earlier chunks are validated, with at most two chunks per thread in
+ * flight, so only those chunks are held in memory and not the whole input.
+ */
+public final class BatchValidator {
+
+  // below this many records per chunk the scheduling overhead outweighs the parallelism
+  static final int MIN_CHUNK_SIZE = 1024;
+  static final int STREAM_CHUNK_SIZE = MIN_CHUNK_SIZE * 4;
+
+  private final CompiledSchema schema;
+  private final Executor executor;
+  private final int parallelism;
+
+  /**
+   * Runs on the common {@link ForkJoinPool}.
+   */
+  public BatchValidator(final CompiledSchema schema) {
+    this(schema, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * @param schema      Schema all records are validated against.
+   * @param executor    Executor the chunks are validated on.
+   * @param parallelism Number of threads the executor can use, chunks are sized to keep them busy.
+   */
+  public BatchValidator(
+    final CompiledSchema schema,
+    final Executor executor,
+    final int parallelism
+  ) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.schema = schema;
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+  public BatchResult validateAll(final Iterable<? extends Map<String, Object>> records) {
+    if (records instanceof List && records instanceof RandomAccess) {
+      return validateAll((List<? extends Map<String, Object>>) records);
+    }
+    return validateAll(records.iterator());
+  }
+
+  public BatchResult validateAll(final Stream<? extends Map<String, Object>> records) {
+    return validateAll(records.iterator());
+  }
+
+  private BatchResult validateAll(final Iterator<? extends Map<String, Object>> records) {
+    final var chunks = new ArrayList<ChunkResult>();
+    final var running = new ArrayDeque<CompletableFuture<ChunkResult>>();
+    var size = 0;
+    while (records.hasNext()) {
+      final var chunk = new ArrayList<Map<String, Object>>(STREAM_CHUNK_SIZE);
+      while (chunk.size() < STREAM_CHUNK_SIZE && records.hasNext()) {
+        chunk.add(records.next());
+      }
+      if (running.size() >= parallelism * 2) {
+        chunks.add(join(running.poll()));
+      }
+      final var offset = size;
+      running.add(CompletableFuture.supplyAsync(() -> validateChunk(chunk, 0, chunk.size(), offset), executor));
+      size += chunk.size();
+    }
+    while (!running.isEmpty()) {
+      chunks.add(join(running.poll()));
+    }
+    return merge(size, chunks);
+  }
+
+  private BatchResult validateAll(final List<? extends Map<String, Object>> records) {
+    final var size = records.size();
+    // a few chunks per thread so uneven records don't leave threads idle
+    final var chunkSize = Math.max(MIN_CHUNK_SIZE, (size + parallelism * 4 - 1) / (parallelism * 4));
+    if (size <= chunkSize) {
+      return merge(size, List.of(validateChunk(records, 0, size, 0)));
+    }
+    final var futures = new ArrayList<CompletableFuture<ChunkResult>>((size + chunkSize - 1) / chunkSize);
+    for (var from = 0; from < size; from += chunkSize) {
+      final var start = from;
+      final var end = Math.min(size, from + chunkSize);
+      futures.add(CompletableFuture.supplyAsync(() -> validateChunk(records, start, end, start), executor));
+    }
+    final var chunks = new ArrayList<ChunkResult>(futures.size());
+    for (final var future : futures) {
+      chunks.add(join(future));
+    }
+    return merge(size, chunks);
+  }
+
+  private static ChunkResult join(final CompletableFuture<ChunkResult> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException exc) {
+      if (exc.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exc.getCause();
+      }
+      throw exc;
+    }
+  }
+
+  // offset is the index of records[from] in the whole batch
+  private ChunkResult validateChunk(
+    final List<? extends Map<String, Object>> records,
+    final int from,
+    final int to,
+    final int offset
+  ) {
+    final var result = new ChunkResult(offset, to - from);
+    try (final var sink = ViolationSink.acquire(1)) {
+      for (var i = from; i < to; i++) {
+        final var data = records.get(i);
+        if (null == data) {
+          result.invalid(i - from, new Violation("", "", Violation.RULE_REQUIRED, null, true));
+        } else if (!schema.validate(data, sink)) {
+          result.invalid(i - from, sink.get(0));
+          sink.clear();
+        }
+      }
+    }
+    return result;
+  }
+
+  // chunks are in record order, so concatenating their violations keeps the indexes sorted
+  private static BatchResult merge(
+    final int size,
+    final List<ChunkResult> chunks
+  ) {
+    final var invalid = new BitSet(size);
+    var count = 0;
+    for (final var chunk : chunks) {
+      count += chunk.violationCount;
+    }
+    final var indexes = new int[count];
+    final var violations = new Violation[count];
+    var position = 0;
+    for (final var chunk : chunks) {
+      for (var i = 0; i < chunk.violationCount; i++) {
+        final var index = chunk.offset + chunk.violationIndexes[i];
+        invalid.set(index);
+        indexes[position] = index;
+        violations[position++] = chunk.violations[i];
+      }
+    }
+    return new BatchResult(size, invalid, indexes, violations);
+  }
+
+  private static final class ChunkResult {
+    private final int offset;
+    private int[] violationIndexes;
+    private Violation[] violations;
+    private int violationCount;
+
+    private ChunkResult(
+      final int offset,
+      final int size
+    ) {
+      this.offset = offset;
+      this.violationIndexes = new int[Math.min(size, 8)];
+      this.violations = new Violation[Math.min(size, 8)];
+    }
+
+    private void invalid(
+      final int index,
+      final Violation violation
+    ) {
+      if (violationCount == violations.length) {
+        violationIndexes = Arrays.copyOf(violationIndexes, Math.max(8, violationCount * 2));
+        violations = Arrays.copyOf(violations, Math.max(8, violationCount * 2));
+      }
+      violationIndexes[violationCount] = index;
+      violations[violationCount++] = violation;
+    }
+  }
+}
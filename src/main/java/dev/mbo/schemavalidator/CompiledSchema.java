@@ -0,0 +1,450 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Flat, pre-resolved form of a <code>Map&lt;String, FieldDefinition&gt;</code> schema. Field types are mapped to their
+ * validators once during {@link #compile(Map, Function)} so validating data only walks an array of bound checks.
+ * <p>
+ * A compiled schema is a snapshot: changes made to the field definitions afterwards are not picked up.
+ */
+public final class CompiledSchema {
+
+  // limits for referenced objects in validated data, see RefCheck
+  public static final int DEFAULT_MAX_DEPTH = 100;
+  public static final int DEFAULT_MAX_NODES = 10_000;
+
+  private static final String OBJECT_TYPE = Object.class.getSimpleName();
+
+  private final CompiledField[] fields;
+  private final Map<String, Integer> indexByKey;
+  // null unless tracing was enabled for this schema, see ValidationTrace
+  private volatile ValidationTrace trace;
+
+  // fields are filled in afterwards, so a schema can reference itself
+  private CompiledSchema(final Map<String, FieldDefinition> schema) {
+    this.fields = new CompiledField[schema.size()];
+    this.indexByKey = new HashMap<>(fields.length * 2);
+    var i = 0;
+    for (final var key : schema.keySet()) {
+      indexByKey.put(key, i++);
+    }
+  }
+
+  /**
+   * @param schema     Field names mapped to their definitions. Nested <code>Object</code> fields and the
+   *                   <code>items</code> of <code>List</code> fields are compiled as well.
+   * @param validators Lookup from type name to the validator responsible for it.
+   * @return The compiled schema.
+   * @throws IllegalStateException if there is no validator for a type used in the schema.
+   */
+  public static CompiledSchema compile(
+    final Map<String, FieldDefinition> schema,
+    final Function<String, FieldValidator<?>> validators
+  ) {
+    return compile(schema, validators, name -> null);
+  }
+
+  /**
+   * Like {@link #compile(Map, Function)} with named schemas for <code>ref</code> fields and the default limits.
+   */
+  public static CompiledSchema compile(
+    final Map<String, FieldDefinition> schema,
+    final Function<String, FieldValidator<?>> validators,
+    final Function<String, Map<String, FieldDefinition>> definitions
+  ) {
+    return compile(schema, validators, definitions, DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+  }
+
+  /**
+   * @param definitions Lookup from name to the named schema <code>ref</code> fields point to. Named schemas can
+   *                    reference each other and themselves and are compiled once.
+   * @param maxDepth    Maximum nesting of referenced objects in validated data.
+   * @param maxNodes    Maximum number of referenced objects in one validated record.
+   * @throws IllegalStateException if there is no validator for a type or no definition for a name.
+   */
+  public static CompiledSchema compile(
+    final Map<String, FieldDefinition> schema,
+    final Function<String, FieldValidator<?>> validators,
+    final Function<String, Map<String, FieldDefinition>> definitions,
+    final int maxDepth,
+    final int maxNodes
+  ) {
+    if (maxDepth < 1 || maxNodes < 1) {
+      throw new IllegalArgumentException("maxDepth and maxNodes must be positive");
+    }
+    return new Compilation(validators, definitions, maxDepth, maxNodes).compile(schema, "");
+  }
+
+  // JSON pointer escaping (RFC 6901)
+  private static String escape(final String key) {
+    return key.replace("~", "~0").replace("/", "~1");
+  }
+
+  private static final class Compilation {
+
+    private final Function<String, FieldValidator<?>> validators;
+    private final Function<String, Map<String, FieldDefinition>> definitions;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final Map<String, CompiledSchema> named = new HashMap<>();
+
+    private Compilation(
+      final Function<String, FieldValidator<?>> validators,
+      final Function<String, Map<String, FieldDefinition>> definitions,
+      final int maxDepth,
+      final int maxNodes
+    ) {
+      this.validators = validators;
+      this.definitions = definitions;
+      this.maxDepth = maxDepth;
+      this.maxNodes = maxNodes;
+    }
+
+    private CompiledSchema compile(
+      final Map<String, FieldDefinition> schema,
+      final String path
+    ) {
+      return fill(new CompiledSchema(schema), schema, path);
+    }
+
+    private CompiledSchema fill(
+      final CompiledSchema compiled,
+      final Map<String, FieldDefinition> schema,
+      final String path
+    ) {
+      var i = 0;
+      for (final var entry : schema.entrySet()) {
+        compiled.fields[i++] = compileField(entry.getKey(), entry.getValue(), path + "/" + escape(entry.getKey()));
+      }
+      return compiled;
+    }
+
+    // paths of named schemas are relative to the referencing field, see RefCheck
+    private CompiledSchema named(final String name) {
+      final var existing = named.get(name);
+      if (null != existing) {
+        return existing;
+      }
+      final var schema = definitions.apply(name);
+      if (null == schema) {
+        throw new IllegalStateException("no schema definition " + name);
+      }
+      final var compiled = new CompiledSchema(schema);
+      named.put(name, compiled);
+      return fill(compiled, schema, "");
+    }
+
+    private CompiledField compileField(
+      final String key,
+      final FieldDefinition fieldDefinition,
+      final String path
+    ) {
+      final var type = fieldDefinition.getType();
+      if (OBJECT_TYPE.equals(type) && null != fieldDefinition.getRef()) {
+        return new CompiledField(
+          key,
+          path,
+          type,
+          fieldDefinition.getNullable(),
+          null,
+          fieldDefinition,
+          null,
+          new RefCheck(named(fieldDefinition.getRef()), fieldDefinition, maxDepth, maxNodes)
+        );
+      }
+      if (OBJECT_TYPE.equals(type)) {
+        if (null == fieldDefinition.getNested()) {
+          throw new IllegalStateException("no nested schema for " + key);
+        }
+        return new CompiledField(
+          key,
+          path,
+          type,
+          fieldDefinition.getNullable(),
+          compile(fieldDefinition.getNested(), path),
+          fieldDefinition,
+          null,
+          null
+        );
+      }
+      if (ListCheck.LIST_TYPE.equals(type)) {
+        if (null == fieldDefinition.getItems()) {
+          throw new IllegalStateException("no items definition for " + key);
+        }
+        final var elementPath = path + "/" + ViolationSink.INDEX_SEGMENT;
+        final var element = compileField(key, fieldDefinition.getItems(), elementPath);
+        return new CompiledField(
+          key,
+          path,
+          type,
+          fieldDefinition.getNullable(),
+          null,
+          fieldDefinition,
+          null,
+          new ListCheck(path, fieldDefinition, element)
+        );
+      }
+      final var validator = validators.apply(type);
+      if (null == validator) {
+        throw new IllegalStateException("no validator for " + type);
+      }
+      return new CompiledField(
+        key,
+        path,
+        type,
+        fieldDefinition.getNullable(),
+        null,
+        fieldDefinition,
+        validator,
+        validator.bind(fieldDefinition)
+      );
+    }
+  }
+
+  public int size() {
+    return fields.length;
+  }
+
+  /**
+   * Enables per-field tracing of this schema. Nested objects are traced as part of their parent.
+   */
+  public void enableTrace(final ValidationTrace trace) {
+    this.trace = trace;
+  }
+
+  public void disableTrace() {
+    this.trace = null;
+  }
+
+  // -1 if the key isn't part of the schema
+  int indexOf(final String key) {
+    final var index = indexByKey.get(key);
+    return null == index ? -1 : index;
+  }
+
+  CompiledField field(final int index) {
+    return fields[index];
+  }
+
+  /**
+   * @param data Data to check against this schema.
+   * @throws IllegalStateException on the first field that doesn't match its definition.
+   */
+  public void validate(final Map<String, Object> data) {
+    try (final var sink = ViolationSink.acquire(1)) {
+      if (!validate(data, sink)) {
+        throw new IllegalStateException(sink.get(0).getMessage());
+      }
+    }
+  }
+
+  /**
+   * Validates without throwing. Checking stops once the sink is full.
+   *
+   * @param data Data to check against this schema.
+   * @param sink Receives the violations.
+   * @return true if the data is valid.
+   */
+  public boolean validate(
+    final Map<String, Object> data,
+    final ViolationSink sink
+  ) {
+    final var currentTrace = trace;
+    if (null != currentTrace && currentTrace.sample()) {
+      return validateTraced(data, sink, currentTrace);
+    }
+    var valid = true;
+    for (final var field : fields) {
+      if (!field.validate(data.get(field.key), sink)) {
+        valid = false;
+        if (sink.isFull()) {
+          break;
+        }
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Validates all fields like {@link #validate(Map, ViolationSink)} and keeps the violations per field, so the record
+   * can be validated again with {@link #revalidate} after a partial update.
+   *
+   * @param data Data to check against this schema.
+   * @return Violations of every field, all of them regardless of a limit.
+   */
+  public ValidationSnapshot snapshot(final Map<String, Object> data) {
+    try (final var sink = ViolationSink.acquire(Integer.MAX_VALUE)) {
+      return ValidationSnapshot.of(this, data, sink);
+    }
+  }
+
+  /**
+   * Validates only the changed fields of a record and takes the outcome of all other fields from its base snapshot,
+   * so the cost depends on the size of the change rather than the size of the schema. The result is the same as
+   * {@link #snapshot(Map)} of the changed record as long as the other fields really didn't change.
+   *
+   * @param base    Snapshot of the record before the change, taken with this schema.
+   * @param data    The whole record after the change.
+   * @param changed Changed top level keys or JSON pointers like <code>/nested/test</code>. Nested objects are only
+   *                checked along the pointer, lists and referenced objects are checked as a whole. Keys that are not
+   *                part of the schema are ignored.
+   * @return Snapshot of the changed record.
+   */
+  public ValidationSnapshot revalidate(
+    final ValidationSnapshot base,
+    final Map<String, Object> data,
+    final Collection<String> changed
+  ) {
+    if (base.schema() != this) {
+      throw new IllegalArgumentException("snapshot was taken with a different schema");
+    }
+    try (final var sink = ViolationSink.acquire(Integer.MAX_VALUE)) {
+      return base.revalidate(data, changed, sink);
+    }
+  }
+
+  private boolean validateTraced(
+    final Map<String, Object> data,
+    final ViolationSink sink,
+    final ValidationTrace trace
+  ) {
+    var valid = true;
+    for (final var field : fields) {
+      final var value = data.get(field.key);
+      final boolean fieldValid;
+      if (null != field.nested && value instanceof Map) {
+        @SuppressWarnings("unchecked") final var nestedObject = (Map<String, Object>) value;
+        fieldValid = field.nested.validateTraced(nestedObject, sink, trace);
+      } else {
+        fieldValid = field.validate(value, sink);
+      }
+      trace.field(field.path, field.type, value, fieldValid);
+      if (!fieldValid) {
+        valid = false;
+        if (sink.isFull()) {
+          break;
+        }
+      }
+    }
+    return valid;
+  }
+
+  static final class CompiledField {
+
+    private final String key;
+    // JSON pointer from the root of the data to this field, resolved at compile time
+    private final String path;
+    private final String type;
+    private final boolean notNull;
+    private final boolean nullable;
+    private final CompiledSchema nested;
+    private final FieldDefinition definition;
+    // null for nested, ref and list fields
+    private final FieldValidator<?> validator;
+    private final FieldCheck check;
+
+    private CompiledField(
+      final String key,
+      final String path,
+      final String type,
+      final Boolean nullable,
+      final CompiledSchema nested,
+      final FieldDefinition definition,
+      final FieldValidator<?> validator,
+      final FieldCheck check
+    ) {
+      this.key = key;
+      this.path = path;
+      this.type = type;
+      this.notNull = nullable == Boolean.FALSE;
+      this.nullable = nullable == Boolean.TRUE;
+      this.nested = nested;
+      this.definition = definition;
+      this.validator = validator;
+      this.check = check;
+    }
+
+    String key() {
+      return key;
+    }
+
+    String path() {
+      return path;
+    }
+
+    String type() {
+      return type;
+    }
+
+    // null for scalar fields
+    CompiledSchema nested() {
+      return nested;
+    }
+
+    FieldDefinition definition() {
+      return definition;
+    }
+
+    FieldValidator<?> validator() {
+      return validator;
+    }
+
+    FieldCheck check() {
+      return check;
+    }
+
+    boolean validate(
+      final Object data,
+      final ViolationSink sink
+    ) {
+      sink.at(path);
+      if (notNull && null == data) {
+        sink.report(key, Violation.RULE_REQUIRED, null, true);
+        return false;
+      }
+      if (null != check) {
+        return check.check(key, data, sink);
+      }
+      return validateNested(data, sink);
+    }
+
+    private boolean validateNested(
+      final Object data,
+      final ViolationSink sink
+    ) {
+      if (null == data) {
+        if (!nullable) {
+          sink.report(key, Violation.RULE_REQUIRED, null, true);
+          return false;
+        }
+        return true;
+      }
+      if (!(data instanceof Map)) {
+        sink.report(key, Violation.RULE_TYPE, data, OBJECT_TYPE);
+        return false;
+      }
+      @SuppressWarnings("unchecked") final var nestedObject = (Map<String, Object>) data;
+      return nested.validate(nestedObject, sink);
+    }
+  }
+}
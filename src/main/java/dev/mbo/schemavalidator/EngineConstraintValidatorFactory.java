@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorFactory;
+
+/**
+ * Creates {@link ValidateSchemaValidator}s bound to one {@link ValidatorEngine} and leaves all other validators to
+ * the given factory:
+ * <pre>
+ * final var configuration = Validation.byDefaultProvider().configure();
+ * final var validator = configuration
+ *   .constraintValidatorFactory(new EngineConstraintValidatorFactory(
+ *     engine, configuration.getDefaultConstraintValidatorFactory()))
+ *   .buildValidatorFactory()
+ *   .getValidator();
+ * </pre>
+ */
+public class EngineConstraintValidatorFactory implements ConstraintValidatorFactory {
+
+  private final ValidatorEngine engine;
+  private final ConstraintValidatorFactory delegate;
+
+  public EngineConstraintValidatorFactory(
+    final ValidatorEngine engine,
+    final ConstraintValidatorFactory delegate
+  ) {
+    this.engine = engine;
+    this.delegate = delegate;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends ConstraintValidator<?, ?>> T getInstance(final Class<T> key) {
+    if (key == ValidateSchemaValidator.class) {
+      return (T) new ValidateSchemaValidator(engine);
+    }
+    return delegate.getInstance(key);
+  }
+
+  @Override
+  public void releaseInstance(final ConstraintValidator<?, ?> instance) {
+    if (!(instance instanceof ValidateSchemaValidator)) {
+      delegate.releaseInstance(instance);
+    }
+  }
+}
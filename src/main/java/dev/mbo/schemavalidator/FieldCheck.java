@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+/**
+ * A single field check with everything it needs already resolved from its {@link FieldDefinition}. Checks report
+ * violations into the given sink instead of throwing.
+ */
+@FunctionalInterface
+public interface FieldCheck {
+  /**
+   * @return true if the data is valid, otherwise the violation was reported to the sink.
+   */
+  boolean check(
+    final String key,
+    final Object data,
+    final ViolationSink sink
+  );
+}
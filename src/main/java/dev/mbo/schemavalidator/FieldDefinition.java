@@ -16,6 +16,7 @@
 
 package dev.mbo.schemavalidator;
 
+import dev.mbo.schemavalidator.fieldvalidator.PatternCache;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -30,11 +31,28 @@ import java.util.Map;
 public class FieldDefinition {
   private String type;
   private Map<String, FieldDefinition> nested;
+  // name of a schema definition used instead of nested, see ValidatorEngine.Builder#definition
+  private String ref;
   private Boolean nullable;
   private Boolean notBlank;
   private String pattern;
   private Long minValue;
   private Long maxValue;
+  // bounds with fractions, take precedence over minValue/maxValue
+  private Double minDoubleValue;
+  private Double maxDoubleValue;
+  // precision and scale of BigDecimal values
+  private Integer maxDigits;
+  private Integer maxScale;
+  // null means NumericWidening.EXACT
+  private NumericWidening widening;
+  // elements of List fields
+  private FieldDefinition items;
+  private Integer minItems;
+  private Integer maxItems;
+  private Boolean uniqueItems;
+  // lists with at least this many elements are checked on the common fork join pool, null never splits
+  private Integer parallelItems;
 
   // override builder method
   public static class FieldDefinitionBuilder {
@@ -64,6 +82,8 @@ public class FieldDefinition {
       if (null == pattern || pattern.length() < 1) {
         throw new IllegalArgumentException("invalid pattern " + pattern);
       }
+      // compiled here so invalid patterns fail early (PatternSyntaxException) and validation finds it in the cache
+      PatternCache.shared().get(pattern);
       this.pattern = pattern;
       return this;
     }
@@ -77,5 +97,66 @@ public class FieldDefinition {
       this.maxValue = maxValue;
       return this;
     }
+
+    public FieldDefinitionBuilder maxDigits(final int maxDigits) {
+      if (maxDigits < 1) {
+        throw new IllegalArgumentException("invalid maxDigits " + maxDigits);
+      }
+      this.maxDigits = maxDigits;
+      return this;
+    }
+
+    public FieldDefinitionBuilder maxScale(final int maxScale) {
+      if (maxScale < 0) {
+        throw new IllegalArgumentException("invalid maxScale " + maxScale);
+      }
+      this.maxScale = maxScale;
+      return this;
+    }
+
+    public FieldDefinitionBuilder minItems(final int minItems) {
+      if (minItems < 0) {
+        throw new IllegalArgumentException("invalid minItems " + minItems);
+      }
+      this.minItems = minItems;
+      return this;
+    }
+
+    public FieldDefinitionBuilder maxItems(final int maxItems) {
+      if (maxItems < 0) {
+        throw new IllegalArgumentException("invalid maxItems " + maxItems);
+      }
+      this.maxItems = maxItems;
+      return this;
+    }
+
+    public FieldDefinitionBuilder uniqueItems(final boolean uniqueItems) {
+      this.uniqueItems = uniqueItems;
+      return this;
+    }
+
+    public FieldDefinitionBuilder parallelItems(final int parallelItems) {
+      if (parallelItems < 1) {
+        throw new IllegalArgumentException("invalid parallelItems " + parallelItems);
+      }
+      this.parallelItems = parallelItems;
+      return this;
+    }
+
+    public FieldDefinitionBuilder minDoubleValue(final double minDoubleValue) {
+      if (Double.isNaN(minDoubleValue)) {
+        throw new IllegalArgumentException("invalid minDoubleValue " + minDoubleValue);
+      }
+      this.minDoubleValue = minDoubleValue;
+      return this;
+    }
+
+    public FieldDefinitionBuilder maxDoubleValue(final double maxDoubleValue) {
+      if (Double.isNaN(maxDoubleValue)) {
+        throw new IllegalArgumentException("invalid maxDoubleValue " + maxDoubleValue);
+      }
+      this.maxDoubleValue = maxDoubleValue;
+      return this;
+    }
   }
 }
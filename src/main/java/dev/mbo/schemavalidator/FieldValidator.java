@@ -16,6 +16,12 @@
 
 package dev.mbo.schemavalidator;
 
+/**
+ * Throwing validator contract: {@link #validate(String, Object, FieldDefinition)} throws an
+ * {@link IllegalStateException} for invalid data. Such validators are adapted to the non-throwing {@link FieldCheck}
+ * by {@link #bind(FieldDefinition)}. Implement {@link ReportingFieldValidator} instead to avoid exceptions on invalid
+ * data.
+ */
 public interface FieldValidator<T> {
   void validate(
     final String key,
@@ -24,4 +30,23 @@ public interface FieldValidator<T> {
   );
 
   Class<T> supportsType();
+
+  /**
+   * Binds this validator to a field definition once so the check can be executed without looking anything up again.
+   * Override this to resolve expensive parts of the definition (patterns, bounds) ahead of time.
+   *
+   * @param fieldDefinition The definition the returned check validates against.
+   * @return Check that behaves like {@link #validate(String, Object, FieldDefinition)} for the given definition.
+   */
+  default FieldCheck bind(final FieldDefinition fieldDefinition) {
+    return (key, data, sink) -> {
+      try {
+        validate(key, data, fieldDefinition);
+        return true;
+      } catch (final IllegalStateException exc) {
+        sink.report(key, Violation.RULE_INVALID, data, exc.getMessage());
+        return false;
+      }
+    };
+  }
 }
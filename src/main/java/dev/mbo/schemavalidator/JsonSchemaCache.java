@@ -16,95 +16,378 @@
 
 package dev.mbo.schemavalidator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.networknt.schema.JsonSchema;
-import com.networknt.schema.JsonSchemaFactory;
 import com.networknt.schema.SpecVersion;
-import lombok.Value;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Thread-safe cache of compiled JSON schemas.
+ * <p>
+ * Reads are a single map lookup. Entries expire <code>timeoutSeconds</code> after they were compiled: expired entries
+ * are dropped when they are read and by a full sweep that runs at most once per cleanup interval on writes. When
+ * <code>maxSize</code> is exceeded the least recently used entry is evicted. Concurrent misses for the same schema
+ * compile it only once.
+ * <p>
+ * Entries are keyed by the full schema content, so a hit is only returned for an equal schema string. Callers that
+ * validate against the same schema repeatedly can keep the {@link SchemaHandle} from {@link #getOrAddHandle(String)}
+ * to skip hashing and lookup altogether.
+ * <p>
+ * The JSON schema version is taken from <code>$schema</code> once when a schema is compiled (draft-04 if it has none)
+ * and the schema is compiled by the shared factory of that version, see {@link SchemaHandle#getSpecVersion()}.
+ */
 public class JsonSchemaCache {
 
-  private final Map<Integer, CacheEntry> jsonSchemaCache;
-  private final JsonSchemaFactory jsonSchemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V4);
-  private final int initialCapacity;
-  private final int timeoutSeconds;
+  private static final Logger LOG = LoggerFactory.getLogger(JsonSchemaCache.class);
+
+  public static final int DEFAULT_INITIAL_CAPACITY = 128;
+  public static final int DEFAULT_TIMEOUT_SECONDS = 3600;
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final ConcurrentHashMap<String, CacheEntry> jsonSchemaCache;
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JsonSchemaFactories factories;
+  private final long timeoutNanos;
+  private final int maxSize;
+  private final long cleanupIntervalNanos;
+  private final AtomicLong nextCleanup;
+  // optional, null if compiled schemas are only kept in memory
+  private final SchemaStore store;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder compileNanos = new LongAdder();
 
   public JsonSchemaCache() {
-    this.initialCapacity = 128;
-    this.timeoutSeconds = 3600;
-    jsonSchemaCache = new HashMap<>(initialCapacity);
+    this(DEFAULT_INITIAL_CAPACITY, DEFAULT_TIMEOUT_SECONDS);
   }
 
   public JsonSchemaCache(final int initialCapacity, final int timeoutSeconds) {
-    this.initialCapacity = initialCapacity;
-    this.timeoutSeconds = timeoutSeconds;
-    jsonSchemaCache = new HashMap<>(initialCapacity);
+    this(initialCapacity, timeoutSeconds, DEFAULT_MAX_SIZE);
   }
 
-  public JsonSchema add(final String jsonSchemaStr) {
-    requiredStringArgument(jsonSchemaStr);
-    return add(jsonSchemaStr.hashCode(), jsonSchemaStr);
+  /**
+   * @param initialCapacity Initial capacity of the underlying map.
+   * @param timeoutSeconds  Seconds a compiled schema stays in the cache.
+   * @param maxSize         Maximum number of schemas kept in the cache.
+   */
+  public JsonSchemaCache(final int initialCapacity, final int timeoutSeconds, final int maxSize) {
+    this(initialCapacity, timeoutSeconds, maxSize, null);
   }
 
-  private JsonSchema add(
-    final int hashCode,
-    final String jsonSchemaStr
+  /**
+   * @param initialCapacity Initial capacity of the underlying map.
+   * @param timeoutSeconds  Seconds a compiled schema stays in the cache.
+   * @param maxSize         Maximum number of schemas kept in the cache.
+   * @param store           Remembers compiled schemas across restarts, see {@link #preloadStored()}. May be null.
+   */
+  public JsonSchemaCache(
+    final int initialCapacity,
+    final int timeoutSeconds,
+    final int maxSize,
+    final SchemaStore store
   ) {
-    final var now = now();
-    clean(now);
-    final var jsonSchema = jsonSchemaFactory.getSchema(jsonSchemaStr);
-    jsonSchemaCache.put(hashCode, new CacheEntry(now.plusSeconds(timeoutSeconds), jsonSchema));
-    return jsonSchema;
+    this(initialCapacity, timeoutSeconds, maxSize, store, null);
   }
 
-  public Optional<JsonSchema> get(final int hashCode) {
-    clean(now());
-    final var cacheEntry = jsonSchemaCache.get(hashCode);
-    if (null == cacheEntry) {
+  /**
+   * @param initialCapacity Initial capacity of the underlying map.
+   * @param timeoutSeconds  Seconds a compiled schema stays in the cache.
+   * @param maxSize         Maximum number of schemas kept in the cache.
+   * @param store           Remembers compiled schemas across restarts, see {@link #preloadStored()}. May be null.
+   * @param registry        Resolves <code>$ref</code> URIs locally. May be null to let the JSON schema library load
+   *                        them.
+   */
+  public JsonSchemaCache(
+    final int initialCapacity,
+    final int timeoutSeconds,
+    final int maxSize,
+    final SchemaStore store,
+    final SchemaRegistry registry
+  ) {
+    if (timeoutSeconds < 0 || maxSize < 1) {
+      throw new IllegalArgumentException("timeoutSeconds must not be negative and maxSize must be positive");
+    }
+    this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    this.maxSize = maxSize;
+    // sweeping for expired entries a few times per timeout is enough, reads never return them anyway
+    this.cleanupIntervalNanos = Math.max(timeoutNanos / 4, TimeUnit.SECONDS.toNanos(1));
+    this.nextCleanup = new AtomicLong(now() + cleanupIntervalNanos);
+    this.jsonSchemaCache = new ConcurrentHashMap<>(initialCapacity);
+    this.store = store;
+    this.factories = null == registry ? JsonSchemaFactories.shared() : registry.factories();
+  }
+
+  SchemaStore store() {
+    return store;
+  }
+
+  /**
+   * Compiles every schema of the store into this cache, e.g. at boot. Schemas that no longer compile are skipped.
+   *
+   * @return Number of compiled schemas.
+   */
+  public int preloadStored() {
+    if (null == store) {
+      return 0;
+    }
+    var compiled = 0;
+    for (final var jsonSchema : store.schemas()) {
+      try {
+        getOrAddHandle(jsonSchema);
+        compiled++;
+      } catch (final RuntimeException exc) {
+        LOG.warn("skipping stored schema that doesn't compile: {}", exc.toString());
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * Compiles the schema and replaces a cached one for the same key.
+   */
+  public JsonSchema add(final String jsonSchemaStr) {
+    requiredStringArgument(jsonSchemaStr);
+    final var entry = new CacheEntry(now() + timeoutNanos);
+    final var handle = entry.handle(this, jsonSchemaStr);
+    final var replaced = jsonSchemaCache.put(jsonSchemaStr, entry);
+    if (null != replaced) {
+      replaced.release();
+    }
+    afterWrite();
+    remember(jsonSchemaStr);
+    return handle.getJsonSchema();
+  }
+
+  public Optional<JsonSchema> get(final String jsonSchemaStr) {
+    requiredStringArgument(jsonSchemaStr);
+    final var cacheEntry = liveEntry(jsonSchemaStr, now());
+    if (null == cacheEntry || null == cacheEntry.handle) {
       return Optional.empty();
     }
-    return Optional.of(cacheEntry.jsonSchema);
+    return Optional.of(cacheEntry.handle.getJsonSchema());
   }
 
   public JsonSchema getOrAdd(final String jsonSchemaStr) {
+    return getOrAddHandle(jsonSchemaStr).getJsonSchema();
+  }
+
+  /**
+   * @param jsonSchemaStr JSON schema content.
+   * @return Handle to the compiled schema which stays usable after the entry left the cache.
+   */
+  public SchemaHandle getOrAddHandle(final String jsonSchemaStr) {
     requiredStringArgument(jsonSchemaStr);
-    final var hashCode = jsonSchemaStr.hashCode();
-    final var optionalJsonSchema = get(hashCode);
-    return optionalJsonSchema.orElseGet(() -> add(hashCode, jsonSchemaStr));
+    final var now = now();
+    final var cacheEntry = liveEntry(jsonSchemaStr, now);
+    if (null != cacheEntry && null != cacheEntry.handle) {
+      hits.increment();
+      return cacheEntry.handle;
+    }
+    misses.increment();
+    final var created = new CacheEntry(now + timeoutNanos);
+    final var entry = jsonSchemaCache.compute(jsonSchemaStr, (k, existing) ->
+      null == existing || existing.isExpired(now) ? created : existing
+    );
+    if (entry == created) {
+      afterWrite();
+    }
+    try {
+      final var handle = entry.handle(this, jsonSchemaStr);
+      if (entry == created) {
+        remember(jsonSchemaStr);
+      }
+      return handle;
+    } catch (final RuntimeException exc) {
+      // don't cache failures, the next caller tries again
+      jsonSchemaCache.remove(jsonSchemaStr, entry);
+      throw exc;
+    }
   }
 
-  private static void requiredStringArgument(final String arg) {
-    if (null == arg || arg.isBlank()) {
-      throw new IllegalArgumentException("argument must not be null or blank");
+  /**
+   * Handle of an entry that was looked up before, without hashing the schema again. Counts as a hit.
+   *
+   * @return null once the entry expired or left the cache, look the schema up again then.
+   */
+  SchemaHandle hit(final CacheEntry entry) {
+    final var now = now();
+    final var handle = entry.handle;
+    if (null == handle || entry.isExpired(now)) {
+      return null;
+    }
+    entry.lastAccess = now;
+    hits.increment();
+    return handle;
+  }
+
+  // the live entry of the schema, null if it isn't cached
+  CacheEntry entry(final String jsonSchemaStr) {
+    final var cacheEntry = liveEntry(jsonSchemaStr, now());
+    return null == cacheEntry || null == cacheEntry.handle ? null : cacheEntry;
+  }
+
+  static boolean isLive(final CacheEntry entry) {
+    return null != entry.handle && !entry.isExpired(now());
+  }
+
+  public int size() {
+    return jsonSchemaCache.size();
+  }
+
+  // lookups through getOrAdd/getOrAddHandle
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  // least recently used entries removed because the cache was full, expired ones are not counted
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  public long compileTimeNanos() {
+    return compileNanos.sum();
+  }
+
+  private SchemaHandle compile(final String jsonSchemaStr) {
+    final var start = now();
+    try {
+      final var schemaNode = MAPPER.readTree(jsonSchemaStr);
+      final var version = JsonSchemaFactories.detect(schemaNode);
+      final var jsonSchema = factories.get(version).getSchema(schemaNode);
+      // resolves $refs and builds all subschema validators now instead of on the first validation
+      jsonSchema.initializeValidators();
+      return new SchemaHandle(jsonSchema, version);
+    } catch (final JsonProcessingException exc) {
+      throw new IllegalStateException("invalid json schema", exc);
+    } finally {
+      compileNanos.add(now() - start);
+    }
+  }
+
+  private CacheEntry liveEntry(final String jsonSchemaStr, final long now) {
+    final var cacheEntry = jsonSchemaCache.get(jsonSchemaStr);
+    if (null == cacheEntry) {
+      return null;
     }
+    if (cacheEntry.isExpired(now)) {
+      if (jsonSchemaCache.remove(jsonSchemaStr, cacheEntry)) {
+        cacheEntry.release();
+      }
+      return null;
+    }
+    cacheEntry.lastAccess = now;
+    return cacheEntry;
   }
 
-  private Instant now() {
-    return Instant.now();
+  private void remember(final String jsonSchemaStr) {
+    if (null != store) {
+      store.add(jsonSchemaStr);
+    }
+  }
+
+  private void afterWrite() {
+    final var now = now();
+    final var due = nextCleanup.get();
+    if (now - due >= 0 && nextCleanup.compareAndSet(due, now + cleanupIntervalNanos)) {
+      jsonSchemaCache.values().removeIf(entry -> {
+        if (entry.isExpired(now)) {
+          entry.release();
+          return true;
+        }
+        return false;
+      });
+    }
+    while (jsonSchemaCache.size() > maxSize) {
+      evictLeastRecentlyUsed();
+    }
   }
 
-  private void clean(final Instant ts) {
-    final List<Integer> toRemove = new ArrayList<>(initialCapacity);
-    jsonSchemaCache.forEach((hashCode, entry) -> {
-      if (ts.isAfter(entry.validUntil)) {
-        toRemove.add(hashCode);
+  // O(n), but only runs when a new schema was compiled which is far more expensive
+  private void evictLeastRecentlyUsed() {
+    String eldestKey = null;
+    CacheEntry eldest = null;
+    for (final var e : jsonSchemaCache.entrySet()) {
+      if (null == eldest || e.getValue().lastAccess - eldest.lastAccess < 0) {
+        eldestKey = e.getKey();
+        eldest = e.getValue();
       }
-    });
-    for (final Integer i : toRemove) {
-      jsonSchemaCache.remove(i);
+    }
+    if (null != eldestKey && jsonSchemaCache.remove(eldestKey, eldest)) {
+      eldest.release();
+      evictions.increment();
     }
   }
 
-  @Value
+  private static void requiredStringArgument(final String arg) {
+    if (null == arg || arg.isBlank()) {
+      throw new IllegalArgumentException("argument must not be null or blank");
+    }
+  }
+
+  private static long now() {
+    return System.nanoTime();
+  }
+
   public static class CacheEntry {
-    Instant validUntil;
-    JsonSchema jsonSchema;
+
+    private final long validUntil;
+    // racy on purpose, approximate recency is enough for eviction and avoids a volatile write per hit
+    private long lastAccess;
+    @Getter
+    private volatile SchemaHandle handle;
+
+    private CacheEntry(final long validUntil) {
+      this.validUntil = validUntil;
+      this.lastAccess = now();
+    }
+
+    // null until the schema is compiled and again once the entry left the cache
+    public SpecVersion.VersionFlag getSpecVersion() {
+      final var current = handle;
+      return null == current ? null : current.getSpecVersion();
+    }
+
+    private boolean isExpired(final long now) {
+      return now - validUntil > 0;
+    }
+
+    // drops the compiled schema with the entry, so holders of the entry outside of the cache don't keep it alive
+    private void release() {
+      handle = null;
+    }
+
+    // compiled outside of the map lock so other keys are not blocked, but only once per entry
+    private SchemaHandle handle(
+      final JsonSchemaCache cache,
+      final String jsonSchemaStr
+    ) {
+      var result = handle;
+      if (null == result) {
+        synchronized (this) {
+          result = handle;
+          if (null == result) {
+            result = cache.compile(jsonSchemaStr);
+            handle = result;
+          }
+        }
+      }
+      return result;
+    }
   }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.schema.JsonMetaSchema;
+import com.networknt.schema.JsonSchemaException;
+import com.networknt.schema.JsonSchemaFactory;
+import com.networknt.schema.SpecVersion;
+import com.networknt.schema.SpecVersionDetector;
+import com.networknt.schema.uri.URIFetcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link JsonSchemaFactory} per JSON schema version, created on first use. A factory compiles every schema loaded
+ * through a <code>$ref</code> URI only once and reuses it for all schemas of that version, so sharing the factories
+ * shares <code>$ref</code> resolution across all schemas of a {@link JsonSchemaCache} and across caches.
+ * <p>
+ * Every factory knows all versions, so a schema can reference one of another version. They only differ in the version
+ * used for schemas without <code>$schema</code>.
+ */
+final class JsonSchemaFactories {
+
+  // schemas without $schema, the only version supported before detection was added
+  static final SpecVersion.VersionFlag DEFAULT_VERSION = SpecVersion.VersionFlag.V4;
+
+  private static final JsonSchemaFactories SHARED = new JsonSchemaFactories(null, List.of());
+
+  // null for the fetchers of the JSON schema library
+  private final URIFetcher fetcher;
+  private final List<String> fetcherSchemes;
+  private final Map<SpecVersion.VersionFlag, JsonSchemaFactory> factories = new ConcurrentHashMap<>();
+
+  /**
+   * @param fetcher        Loads <code>$ref</code> URIs of the given schemes instead of the library.
+   * @param fetcherSchemes URI schemes handled by <code>fetcher</code>.
+   */
+  JsonSchemaFactories(
+    final URIFetcher fetcher,
+    final List<String> fetcherSchemes
+  ) {
+    this.fetcher = fetcher;
+    this.fetcherSchemes = fetcherSchemes;
+  }
+
+  static JsonSchemaFactories shared() {
+    return SHARED;
+  }
+
+  /**
+   * @return Version named by <code>$schema</code>, {@link #DEFAULT_VERSION} if there is none.
+   * @throws IllegalStateException if <code>$schema</code> names an unsupported version.
+   */
+  static SpecVersion.VersionFlag detect(final JsonNode schema) {
+    if (!schema.has("$schema")) {
+      return DEFAULT_VERSION;
+    }
+    try {
+      return SpecVersionDetector.detect(schema);
+    } catch (final JsonSchemaException exc) {
+      throw new IllegalStateException("unsupported $schema " + schema.get("$schema").asText(), exc);
+    }
+  }
+
+  JsonSchemaFactory get(final SpecVersion.VersionFlag version) {
+    return factories.computeIfAbsent(version, this::create);
+  }
+
+  private JsonSchemaFactory create(final SpecVersion.VersionFlag version) {
+    final var builder = JsonSchemaFactory.builder(JsonSchemaFactory.getInstance(version))
+      .addMetaSchemas(List.of(
+        JsonMetaSchema.getV4(),
+        JsonMetaSchema.getV6(),
+        JsonMetaSchema.getV7(),
+        JsonMetaSchema.getV201909()
+      ));
+    if (null != fetcher) {
+      builder.uriFetcher(fetcher, fetcherSchemes);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import dev.mbo.schemavalidator.fieldvalidator.DoubleFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.LongFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.NumericBounds;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Check of a <code>List</code> field. Accepts a {@link List}, an <code>Object[]</code> or an <code>int[]</code>,
+ * <code>long[]</code> or <code>double[]</code>.
+ * <p>
+ * Elements of the built-in Integer, Long and Double validators (without widening) are checked in bulk: one loop per
+ * container type compares the values against primitive bounds and only an element that fails goes through the element
+ * field for its violation. All other elements are validated one by one by their compiled field.
+ */
+final class ListCheck implements FieldCheck {
+
+  static final String LIST_TYPE = List.class.getSimpleName();
+
+  private static final int KIND_ELEMENT = 0;
+  private static final int KIND_INTEGER = 1;
+  private static final int KIND_LONG = 2;
+  private static final int KIND_DOUBLE = 3;
+
+  private final String path;
+  private final boolean nullable;
+  private final int minItems;
+  private final int maxItems;
+  private final boolean uniqueItems;
+  // 0 never splits
+  private final int parallelItems;
+  private final CompiledSchema.CompiledField element;
+  private final int kind;
+  // null for KIND_ELEMENT
+  private final NumericBounds bounds;
+
+  ListCheck(
+    final String path,
+    final FieldDefinition definition,
+    final CompiledSchema.CompiledField element
+  ) {
+    this.path = path;
+    this.nullable = definition.getNullable() == Boolean.TRUE;
+    this.minItems = null == definition.getMinItems() ? 0 : definition.getMinItems();
+    this.maxItems = null == definition.getMaxItems() ? Integer.MAX_VALUE : definition.getMaxItems();
+    this.uniqueItems = definition.getUniqueItems() == Boolean.TRUE;
+    this.parallelItems = null == definition.getParallelItems() ? 0 : definition.getParallelItems();
+    this.element = element;
+    this.kind = kindOf(element);
+    this.bounds = kind == KIND_ELEMENT ? null : NumericBounds.of(element.definition());
+  }
+
+  private static int kindOf(final CompiledSchema.CompiledField element) {
+    final var widening = element.definition().getWidening();
+    if (null != element.nested() || null == element.validator()
+      || (null != widening && widening != NumericWidening.EXACT)) {
+      return KIND_ELEMENT;
+    }
+    final var validatorType = element.validator().getClass();
+    if (validatorType == IntegerFieldValidator.class) {
+      return KIND_INTEGER;
+    } else if (validatorType == LongFieldValidator.class) {
+      return KIND_LONG;
+    } else if (validatorType == DoubleFieldValidator.class) {
+      return KIND_DOUBLE;
+    }
+    return KIND_ELEMENT;
+  }
+
+  @Override
+  public boolean check(
+    final String key,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    if (null == data) {
+      if (!nullable) {
+        sink.report(key, Violation.RULE_REQUIRED, null, true);
+        return false;
+      }
+      return true;
+    }
+    final var elements = elements(data);
+    if (null == elements) {
+      sink.report(key, Violation.RULE_TYPE, data, LIST_TYPE);
+      return false;
+    }
+    final var size = size(elements);
+    if (size < minItems) {
+      sink.report(key, Violation.RULE_MIN_ITEMS, size, minItems);
+      return false;
+    }
+    if (size > maxItems) {
+      sink.report(key, Violation.RULE_MAX_ITEMS, size, maxItems);
+      return false;
+    }
+    if (!checkElements(elements, size, sink)) {
+      return false;
+    }
+    return !uniqueItems || checkUnique(key, elements, sink);
+  }
+
+  // int[], long[], double[] or a RandomAccess list, null if the data isn't a list
+  private static Object elements(final Object data) {
+    if (data instanceof List) {
+      return data instanceof RandomAccess ? data : Arrays.asList(((List<?>) data).toArray());
+    } else if (data instanceof Object[]) {
+      return Arrays.asList((Object[]) data);
+    } else if (data instanceof int[] || data instanceof long[] || data instanceof double[]) {
+      return data;
+    }
+    return null;
+  }
+
+  private static int size(final Object elements) {
+    if (elements instanceof int[]) {
+      return ((int[]) elements).length;
+    } else if (elements instanceof long[]) {
+      return ((long[]) elements).length;
+    } else if (elements instanceof double[]) {
+      return ((double[]) elements).length;
+    }
+    return ((List<?>) elements).size();
+  }
+
+  private static Object elementAt(
+    final Object elements,
+    final int index
+  ) {
+    if (elements instanceof int[]) {
+      return ((int[]) elements)[index];
+    } else if (elements instanceof long[]) {
+      return ((long[]) elements)[index];
+    } else if (elements instanceof double[]) {
+      return ((double[]) elements)[index];
+    }
+    return ((List<?>) elements).get(index);
+  }
+
+  private boolean checkElements(
+    final Object elements,
+    final int size,
+    final ViolationSink sink
+  ) {
+    var index = parallelItems > 0 && size >= parallelItems && kind != KIND_ELEMENT
+      ? firstInvalidParallel(elements, size)
+      : firstInvalid(elements, 0, size);
+    if (index < 0) {
+      return true;
+    }
+    var valid = true;
+    sink.enterList();
+    try {
+      while (index >= 0) {
+        sink.index(index);
+        if (!element.validate(elementAt(elements, index), sink)) {
+          valid = false;
+          if (sink.isFull()) {
+            break;
+          }
+        }
+        index = firstInvalid(elements, index + 1, size);
+      }
+    } finally {
+      sink.exitList();
+      sink.at(path);
+    }
+    return valid;
+  }
+
+  // index of the first element in [from, to) the bulk loops can't accept, -1 if there is none
+  private int firstInvalid(
+    final Object elements,
+    final int from,
+    final int to
+  ) {
+    switch (kind) {
+      case KIND_INTEGER:
+        return elements instanceof int[] ? firstInvalid((int[]) elements, from, to)
+          : elements instanceof List ? firstInvalidInteger((List<?>) elements, from, to) : first(from, to);
+      case KIND_LONG:
+        return elements instanceof long[] ? firstInvalid((long[]) elements, from, to)
+          : elements instanceof List ? firstInvalidLong((List<?>) elements, from, to) : first(from, to);
+      case KIND_DOUBLE:
+        return elements instanceof double[] ? firstInvalid((double[]) elements, from, to)
+          : elements instanceof List ? firstInvalidDouble((List<?>) elements, from, to) : first(from, to);
+      default:
+        return first(from, to);
+    }
+  }
+
+  private static int first(
+    final int from,
+    final int to
+  ) {
+    return from < to ? from : -1;
+  }
+
+  private int firstInvalid(
+    final int[] values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      if (!bounds.contains(values[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int firstInvalid(
+    final long[] values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      if (!bounds.contains(values[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int firstInvalid(
+    final double[] values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      if (!bounds.contains(values[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int firstInvalidInteger(
+    final List<?> values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      final var value = values.get(i);
+      if (!(value instanceof Integer) || !bounds.contains((int) (Integer) value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int firstInvalidLong(
+    final List<?> values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      final var value = values.get(i);
+      if (!(value instanceof Long) || !bounds.contains((long) (Long) value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int firstInvalidDouble(
+    final List<?> values,
+    final int from,
+    final int to
+  ) {
+    for (var i = from; i < to; i++) {
+      final var value = values.get(i);
+      if (!(value instanceof Double) || !bounds.contains((double) (Double) value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // the bulk loops split into chunks on the common pool, violations are still reported in order by the caller
+  private int firstInvalidParallel(
+    final Object elements,
+    final int size
+  ) {
+    final var chunks = Math.min(size, ForkJoinPool.getCommonPoolParallelism() * 4);
+    final var chunkSize = (size + chunks - 1) / chunks;
+    return IntStream.range(0, chunks)
+      .parallel()
+      .map(chunk -> firstInvalid(elements, chunk * chunkSize, Math.min(size, (chunk + 1) * chunkSize)))
+      .filter(index -> index >= 0)
+      .min()
+      .orElse(-1);
+  }
+
+  private static boolean checkUnique(
+    final String key,
+    final Object elements,
+    final ViolationSink sink
+  ) {
+    final var duplicate = duplicate(elements);
+    if (null != duplicate) {
+      sink.report(key, Violation.RULE_UNIQUE_ITEMS, duplicate, true);
+      return false;
+    }
+    return true;
+  }
+
+  // primitive arrays are sorted in a copy, lists go through a set; null if all elements are unique
+  private static Object duplicate(final Object elements) {
+    if (elements instanceof int[]) {
+      final var sorted = ((int[]) elements).clone();
+      Arrays.sort(sorted);
+      for (var i = 1; i < sorted.length; i++) {
+        if (sorted[i] == sorted[i - 1]) {
+          return sorted[i];
+        }
+      }
+    } else if (elements instanceof long[]) {
+      final var sorted = ((long[]) elements).clone();
+      Arrays.sort(sorted);
+      for (var i = 1; i < sorted.length; i++) {
+        if (sorted[i] == sorted[i - 1]) {
+          return sorted[i];
+        }
+      }
+    } else if (elements instanceof double[]) {
+      final var sorted = ((double[]) elements).clone();
+      Arrays.sort(sorted);
+      for (var i = 1; i < sorted.length; i++) {
+        if (Double.compare(sorted[i], sorted[i - 1]) == 0) {
+          return sorted[i];
+        }
+      }
+    } else {
+      final var values = (List<?>) elements;
+      final var seen = new HashSet<>(Math.max(16, values.size() * 2));
+      for (final var value : values) {
+        if (!seen.add(value)) {
+          return value;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+/**
+ * Which numeric types a number field accepts.
+ */
+public enum NumericWidening {
+  /**
+   * Only the exact boxed type of the field, e.g. only <code>Long</code> for a Long field.
+   */
+  EXACT,
+  /**
+   * Also other numeric types whose value converts without loss, e.g. an <code>Integer</code> for a Long field or a
+   * <code>Long</code> that fits into an int for an Integer field. Useful for parsed JSON where the number type depends
+   * on the value.
+   */
+  LOSSLESS
+}
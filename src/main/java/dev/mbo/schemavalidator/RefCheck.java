@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Check of an <code>Object</code> field that references a named schema. Named schemas can reference themselves, so
+ * the depth of valid data is not bounded by the schema.
+ * <p>
+ * Referenced objects are not validated recursively: the outermost reference of a record starts a traversal with an
+ * explicit work stack and every reference found while validating pushes a frame onto it. The stack depth of the JVM
+ * stays constant however deep the data is, and the traversal stops with a violation once it exceeds
+ * <code>maxDepth</code> nested or <code>maxNodes</code> referenced objects. Paths of referenced objects are only
+ * resolved for reported violations.
+ */
+final class RefCheck implements FieldCheck {
+
+  private static final String OBJECT_TYPE = Object.class.getSimpleName();
+
+  private final CompiledSchema schema;
+  private final boolean nullable;
+  private final int maxDepth;
+  private final int maxNodes;
+
+  RefCheck(
+    final CompiledSchema schema,
+    final FieldDefinition definition,
+    final int maxDepth,
+    final int maxNodes
+  ) {
+    this.schema = schema;
+    this.nullable = definition.getNullable() == Boolean.TRUE;
+    this.maxDepth = maxDepth;
+    this.maxNodes = maxNodes;
+  }
+
+  @Override
+  public boolean check(
+    final String key,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    if (null == data) {
+      if (!nullable) {
+        sink.report(key, Violation.RULE_REQUIRED, null, true);
+        return false;
+      }
+      return true;
+    }
+    if (!(data instanceof Map)) {
+      sink.report(key, Violation.RULE_TYPE, data, OBJECT_TYPE);
+      return false;
+    }
+    @SuppressWarnings("unchecked") final var object = (Map<String, Object>) data;
+    final var running = sink.traversal();
+    if (null != running) {
+      // validated later by the traversal that is running, its outcome is part of the outermost reference
+      return running.push(key, schema, object, sink);
+    }
+    return traverse(key, object, sink);
+  }
+
+  private boolean traverse(
+    final String key,
+    final Map<String, Object> object,
+    final ViolationSink sink
+  ) {
+    final var traversal = new Traversal(maxDepth, maxNodes);
+    final var path = sink.path();
+    sink.traversal(traversal);
+    try {
+      traversal.push(key, schema, object, sink);
+      Frame frame;
+      while (null != (frame = traversal.stack.poll())) {
+        sink.scope(frame);
+        if (!frame.schema.validate(frame.data, sink)) {
+          traversal.valid = false;
+          if (sink.isFull()) {
+            break;
+          }
+        }
+      }
+    } finally {
+      sink.scope(null);
+      sink.traversal(null);
+      sink.at(path);
+    }
+    return traversal.valid;
+  }
+
+  static final class Traversal {
+
+    private final int maxDepth;
+    private final int maxNodes;
+    private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+    private int nodes;
+    private boolean valid = true;
+    private boolean stopped;
+
+    private Traversal(
+      final int maxDepth,
+      final int maxNodes
+    ) {
+      this.maxDepth = maxDepth;
+      this.maxNodes = maxNodes;
+    }
+
+    // false if a limit is exceeded, the traversal is stopped then
+    private boolean push(
+      final String key,
+      final CompiledSchema schema,
+      final Map<String, Object> data,
+      final ViolationSink sink
+    ) {
+      if (stopped) {
+        return false;
+      }
+      final var parent = sink.scope();
+      final var depth = null == parent ? 1 : parent.depth + 1;
+      if (depth > maxDepth) {
+        sink.report(key, Violation.RULE_MAX_DEPTH, depth, maxDepth);
+        return stop();
+      }
+      if (++nodes > maxNodes) {
+        sink.report(key, Violation.RULE_MAX_NODES, nodes, maxNodes);
+        return stop();
+      }
+      stack.push(new Frame(schema, data, parent, sink.path(), sink.scopeIndexes(), depth));
+      return true;
+    }
+
+    // further references of the running frame fail right away
+    private boolean stop() {
+      stopped = true;
+      valid = false;
+      stack.clear();
+      return false;
+    }
+  }
+
+  static final class Frame {
+
+    private final CompiledSchema schema;
+    private final Map<String, Object> data;
+    private final Frame parent;
+    // path of the referencing field relative to the parent, with the list indexes that were current
+    private final String fieldPath;
+    private final int[] indexes;
+    private final int depth;
+    private String path;
+
+    private Frame(
+      final CompiledSchema schema,
+      final Map<String, Object> data,
+      final Frame parent,
+      final String fieldPath,
+      final int[] indexes,
+      final int depth
+    ) {
+      this.schema = schema;
+      this.data = data;
+      this.parent = parent;
+      this.fieldPath = fieldPath;
+      this.indexes = indexes;
+      this.depth = depth;
+    }
+
+    // iterative as well, the chain of parents is as long as the data is deep
+    String path() {
+      if (null == path) {
+        final var unresolved = new ArrayDeque<Frame>();
+        for (var frame = this; null != frame && null == frame.path; frame = frame.parent) {
+          unresolved.push(frame);
+        }
+        for (final var frame : unresolved) {
+          final var local = null == frame.indexes
+            ? frame.fieldPath
+            : ViolationSink.resolve(frame.fieldPath, frame.indexes, 0, frame.indexes.length);
+          frame.path = null == frame.parent ? local : frame.parent.path + local;
+        }
+      }
+      return path;
+    }
+  }
+}
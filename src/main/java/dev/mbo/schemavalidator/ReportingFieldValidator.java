@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+/**
+ * Validator that reports violations into a {@link ViolationSink} instead of throwing. The throwing
+ * {@link #validate(String, Object, FieldDefinition)} is provided as an adapter on top of {@link #bind(FieldDefinition)}.
+ */
+public interface ReportingFieldValidator<T> extends FieldValidator<T> {
+
+  @Override
+  FieldCheck bind(final FieldDefinition fieldDefinition);
+
+  @Override
+  default void validate(
+    final String key,
+    final Object data,
+    final FieldDefinition fieldDefinition
+  ) {
+    ViolationSink.throwIfInvalid(bind(fieldDefinition), key, data);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.networknt.schema.JsonSchema;
+import com.networknt.schema.SpecVersion;
+import com.networknt.schema.ValidationMessage;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Reusable reference to a schema compiled by {@link JsonSchemaCache}. Holding on to it skips hashing the schema
+ * content and the cache lookup on repeated validations.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class SchemaHandle {
+  JsonSchema jsonSchema;
+  // detected from $schema when it was compiled
+  SpecVersion.VersionFlag specVersion;
+
+  public Set<ValidationMessage> validate(final JsonNode jsonData) {
+    return jsonSchema.validate(jsonData);
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.uri.URIFetcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves <code>$ref</code> URIs of JSON schemas to local files and classpath resources, either by URI prefix or by
+ * the <code>$id</code> of the schema files. Remote URIs (http, https, ftp, file, jar) that are not mapped fail instead
+ * of being loaded, so compiling a schema never touches the network.
+ * <p>
+ * A {@link JsonSchemaCache} created with a registry compiles every referenced schema once per JSON schema version and
+ * shares it between all schemas that reference it, so memory and compile time grow with the number of distinct
+ * referenced schemas, not with the number of references.
+ */
+public final class SchemaRegistry implements URIFetcher {
+
+  // schemes the JSON schema library would otherwise load itself
+  static final List<String> REMOTE_SCHEMES = List.of("http", "https", "ftp", "file", "jar");
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  // URI without fragment -> Path or classpath resource name
+  private final Map<String, Object> ids;
+  // longest prefix first
+  private final List<Mapping> mappings;
+  private final ClassLoader classLoader;
+  private final JsonSchemaFactories factories;
+  private final LongAdder fetches = new LongAdder();
+
+  private SchemaRegistry(final Builder builder) {
+    this.ids = Map.copyOf(builder.ids);
+    this.mappings = builder.mappings.stream()
+      .sorted(Comparator.comparingInt((Mapping mapping) -> mapping.prefix.length()).reversed())
+      .collect(Collectors.toUnmodifiableList());
+    this.classLoader = null == builder.classLoader ? SchemaRegistry.class.getClassLoader() : builder.classLoader;
+    this.factories = new JsonSchemaFactories(this, REMOTE_SCHEMES);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  JsonSchemaFactories factories() {
+    return factories;
+  }
+
+  /**
+   * Number of schemas read for <code>$ref</code> URIs. Each distinct URI is loaded once per JSON schema version.
+   */
+  public long fetchCount() {
+    return fetches.sum();
+  }
+
+  /**
+   * Called by the JSON schema library to load a referenced schema.
+   *
+   * @throws IOException if the URI isn't mapped to a local schema or it can't be read.
+   */
+  @Override
+  public InputStream fetch(final URI uri) throws IOException {
+    final var location = resolve(withoutFragment(uri));
+    if (null == location) {
+      throw new IOException("no local schema for " + uri + ", remote schemas are not loaded");
+    }
+    final InputStream stream;
+    if (location instanceof Path) {
+      stream = Files.newInputStream((Path) location);
+    } else {
+      stream = classLoader.getResourceAsStream((String) location);
+      if (null == stream) {
+        throw new IOException("schema resource " + location + " for " + uri + " not found");
+      }
+    }
+    fetches.increment();
+    return stream;
+  }
+
+  // Path or classpath resource name, null if not mapped
+  private Object resolve(final String uri) {
+    final var id = ids.get(uri);
+    if (null != id) {
+      return id;
+    }
+    for (final var mapping : mappings) {
+      if (uri.startsWith(mapping.prefix)) {
+        return mapping.resolve(uri.substring(mapping.prefix.length()));
+      }
+    }
+    return null;
+  }
+
+  private static String withoutFragment(final URI uri) {
+    final var value = uri.toString();
+    final var fragment = value.indexOf('#');
+    return fragment < 0 ? value : value.substring(0, fragment);
+  }
+
+  private static final class Mapping {
+    private final String prefix;
+    // one of them is null
+    private final Path directory;
+    private final String resourcePrefix;
+
+    private Mapping(
+      final String prefix,
+      final Path directory,
+      final String resourcePrefix
+    ) {
+      this.prefix = prefix;
+      this.directory = directory;
+      this.resourcePrefix = resourcePrefix;
+    }
+
+    // null if the relative part leaves the mapped directory
+    private Object resolve(final String relative) {
+      if (null != directory) {
+        final var file = directory.resolve(relative).normalize();
+        return file.startsWith(directory) ? file : null;
+      }
+      final var resource = URI.create(resourcePrefix + relative).normalize().toString();
+      return resource.startsWith(resourcePrefix) ? resource : null;
+    }
+  }
+
+  public static final class Builder {
+
+    private final Map<String, Object> ids = new HashMap<>();
+    private final List<Mapping> mappings = new ArrayList<>();
+    private ClassLoader classLoader;
+
+    private Builder() {
+    }
+
+    /**
+     * Maps URIs starting with <code>uriPrefix</code> to files below <code>directory</code>, e.g.
+     * <code>https://example.com/schemas/</code> to <code>/etc/app/schemas</code>.
+     */
+    public Builder directory(
+      final String uriPrefix,
+      final Path directory
+    ) {
+      mappings.add(new Mapping(uriPrefix, directory.toAbsolutePath().normalize(), null));
+      return this;
+    }
+
+    /**
+     * Maps URIs starting with <code>uriPrefix</code> to classpath resources starting with <code>resourcePrefix</code>.
+     */
+    public Builder classpath(
+      final String uriPrefix,
+      final String resourcePrefix
+    ) {
+      mappings.add(new Mapping(uriPrefix, null, resourcePrefix));
+      return this;
+    }
+
+    /**
+     * Maps the <code>$id</code> (<code>id</code> for draft-04) of every <code>.json</code> file below the directory to
+     * that file. Files without an id are skipped.
+     *
+     * @throws IllegalStateException if a file can't be read or isn't valid JSON.
+     */
+    public Builder scan(final Path directory) {
+      try (final var files = Files.walk(directory)) {
+        for (final var file : files.filter(f -> f.toString().endsWith(".json")).collect(Collectors.toList())) {
+          final var schema = MAPPER.readTree(file.toFile());
+          final var id = schema.has("$id") ? schema.get("$id") : schema.get("id");
+          if (null != id && id.isTextual()) {
+            ids.put(withoutFragment(URI.create(id.asText())), file.toAbsolutePath().normalize());
+          }
+        }
+      } catch (final IOException | IllegalArgumentException exc) {
+        throw new IllegalStateException("failed to scan schemas in " + directory, exc);
+      }
+      return this;
+    }
+
+    // for classpath mappings, defaults to the class loader of this library
+    public Builder classLoader(final ClassLoader classLoader) {
+      this.classLoader = classLoader;
+      return this;
+    }
+
+    public SchemaRegistry build() {
+      return new SchemaRegistry(this);
+    }
+  }
+}
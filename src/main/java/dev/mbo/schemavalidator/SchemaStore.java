@@ -0,0 +1,452 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.networknt.schema.JsonSchemaFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk second tier for {@link JsonSchemaCache} and {@link ValidatorEngine}: remembers every JSON schema and MAP
+ * schema that was compiled so the next start can compile them up front (see {@link ValidatorEngine#preloadStored()})
+ * instead of on the first requests.
+ * <p>
+ * MAP schemas are stored as their <code>FieldDefinition</code> plan, JSON schemas as their source: compiled JSON
+ * schemas are object graphs of the JSON schema library without a serialized form. Entries are keyed by the SHA-256
+ * digest of their content. The file starts with a format and library version, followed by one record per entry. A
+ * file written by another version or with an entry that doesn't match its digest is ignored as a whole, a truncated
+ * last record is dropped.
+ * <p>
+ * Adding an entry never blocks on I/O: new entries are appended in batches by a background thread. At most
+ * <code>maxEntries</code> are kept, the oldest are dropped first. The file is compacted once it holds twice as many
+ * records as entries.
+ */
+public final class SchemaStore {
+
+  public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SchemaStore.class);
+  private static final int MAGIC = 0x53565332; // "SVS2"
+  private static final int FORMAT_VERSION = 2;
+  private static final int DIGEST_LENGTH = 32;
+  private static final byte KIND_JSON_SCHEMA = 1;
+  private static final byte KIND_MAP_SCHEMA = 2;
+  // sorted keys, so equal MAP schemas have equal digests
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+    .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+  private static final TypeReference<Map<String, FieldDefinition>> MAP_SCHEMA = new TypeReference<>() {
+  };
+  static final String VERSION = version(SchemaStore.class, "version.properties")
+    + "/" + version(JsonSchemaFactory.class, "/META-INF/maven/com.networknt/json-schema-validator/pom.properties");
+
+  private final Path file;
+  private final String version;
+  private final int maxEntries;
+  // a single thread that is only alive while there is something to write
+  private final ThreadPoolExecutor writer;
+  // guards entries, pending and flushScheduled, never held during I/O
+  private final Object lock = new Object();
+  // digest -> entry, oldest first
+  private final LinkedHashMap<ByteArrayKey, Entry> entries = new LinkedHashMap<>();
+  // schema strings and maps not written yet
+  private List<Object> pending = new ArrayList<>();
+  private boolean flushScheduled;
+  // only used by the writer thread after the file was read
+  private int fileRecords;
+  private boolean rewrite;
+
+  private SchemaStore(
+    final Path file,
+    final int maxEntries,
+    final String version
+  ) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+    this.file = file;
+    this.version = version;
+    this.maxEntries = maxEntries;
+    this.writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      final var thread = new Thread(runnable, "schema-store-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    read();
+  }
+
+  /**
+   * Opens the store with at most {@value #DEFAULT_MAX_ENTRIES} entries, the file doesn't have to exist.
+   */
+  public static SchemaStore open(final Path file) {
+    return open(file, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Opens the store, the file doesn't have to exist.
+   *
+   * @param maxEntries Maximum number of schemas kept, the oldest are dropped first.
+   */
+  public static SchemaStore open(
+    final Path file,
+    final int maxEntries
+  ) {
+    return open(file, maxEntries, VERSION);
+  }
+
+  static SchemaStore open(
+    final Path file,
+    final int maxEntries,
+    final String version
+  ) {
+    return new SchemaStore(file, maxEntries, version);
+  }
+
+  /**
+   * @return The stored JSON schemas, oldest first.
+   */
+  public List<String> schemas() {
+    final var schemas = new ArrayList<String>();
+    for (final var entry : snapshot()) {
+      if (entry.kind == KIND_JSON_SCHEMA) {
+        schemas.add(new String(entry.content, StandardCharsets.UTF_8));
+      }
+    }
+    return schemas;
+  }
+
+  /**
+   * @return The stored MAP schemas, oldest first. Plans that can't be read anymore are skipped.
+   */
+  public List<Map<String, FieldDefinition>> mapSchemas() {
+    final var schemas = new ArrayList<Map<String, FieldDefinition>>();
+    for (final var entry : snapshot()) {
+      if (entry.kind == KIND_MAP_SCHEMA) {
+        try {
+          schemas.add(MAPPER.readValue(entry.content, MAP_SCHEMA));
+        } catch (final IOException exc) {
+          LOG.warn("skipping stored map schema that can't be read: {}", exc.toString());
+        }
+      }
+    }
+    return schemas;
+  }
+
+  public int size() {
+    synchronized (lock) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Remembers the JSON schema. It's written in the background, failing writes are logged: the store is only an
+   * optimization.
+   */
+  public void add(final String jsonSchema) {
+    enqueue(jsonSchema);
+  }
+
+  /**
+   * Remembers the plan of the MAP schema, see {@link #add(String)}.
+   */
+  public void add(final Map<String, FieldDefinition> schema) {
+    enqueue(schema);
+  }
+
+  /**
+   * Waits until everything added so far is written, e.g. before shutdown. Writes happen in the background otherwise.
+   */
+  public void flush() {
+    try {
+      writer.submit(this::writePending).get();
+    } catch (final InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException exc) {
+      LOG.warn("failed to flush schema store {}: {}", file, exc.getCause().toString());
+    }
+  }
+
+  private List<Entry> snapshot() {
+    synchronized (lock) {
+      return new ArrayList<>(entries.values());
+    }
+  }
+
+  private void enqueue(final Object schema) {
+    synchronized (lock) {
+      pending.add(schema);
+      if (flushScheduled) {
+        return;
+      }
+      flushScheduled = true;
+    }
+    writer.execute(this::writePending);
+  }
+
+  // runs on the writer thread, everything added since the last run is written as one batch
+  private void writePending() {
+    final List<Object> batch;
+    synchronized (lock) {
+      batch = pending;
+      pending = new ArrayList<>();
+      flushScheduled = false;
+    }
+    final var encoded = new ArrayList<Entry>(batch.size());
+    for (final var schema : batch) {
+      try {
+        encoded.add(Entry.of(schema));
+      } catch (final IOException | RuntimeException exc) {
+        LOG.warn("skipping schema that can't be stored: {}", exc.toString());
+      }
+    }
+    final var added = new ArrayList<Entry>(encoded.size());
+    List<Entry> all = null;
+    synchronized (lock) {
+      for (final var entry : encoded) {
+        if (null == entries.putIfAbsent(new ByteArrayKey(entry.digest), entry)) {
+          added.add(entry);
+        }
+      }
+      evictEldest();
+      if (!added.isEmpty() && (rewrite || fileRecords + added.size() > 2L * maxEntries)) {
+        all = new ArrayList<>(entries.values());
+      }
+    }
+    if (added.isEmpty()) {
+      return;
+    }
+    try {
+      if (null == all) {
+        append(added);
+        fileRecords += added.size();
+      } else {
+        replace(all);
+        fileRecords = all.size();
+        rewrite = false;
+      }
+    } catch (final IOException exc) {
+      LOG.warn("failed to write schema store {}: {}", file, exc.toString());
+      rewrite = true;
+    }
+  }
+
+  private void evictEldest() {
+    final var iterator = entries.values().iterator();
+    while (entries.size() > maxEntries) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private void read() {
+    try (final var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !version.equals(in.readUTF())) {
+        LOG.info("ignoring schema store {} written by another version", file);
+        rewrite = true;
+        return;
+      }
+      while (true) {
+        final var kind = in.read();
+        if (kind < 0) {
+          break;
+        }
+        final Entry entry;
+        try {
+          final var digest = in.readNBytes(DIGEST_LENGTH);
+          final var length = in.readInt();
+          final var content = in.readNBytes(length);
+          if (digest.length != DIGEST_LENGTH || content.length != length) {
+            throw new EOFException();
+          }
+          entry = new Entry((byte) kind, digest, content);
+        } catch (final EOFException exc) {
+          // an append that didn't finish, the records before it are fine
+          LOG.info("dropping truncated last record of schema store {}", file);
+          rewrite = true;
+          break;
+        }
+        if ((entry.kind != KIND_JSON_SCHEMA && entry.kind != KIND_MAP_SCHEMA)
+          || !Arrays.equals(entry.digest, digest(entry.content))) {
+          throw new IOException("digest mismatch");
+        }
+        // a schema added again after it was dropped becomes the newest entry
+        final var key = new ByteArrayKey(entry.digest);
+        entries.remove(key);
+        entries.put(key, entry);
+        fileRecords++;
+      }
+      evictEldest();
+    } catch (final NoSuchFileException exc) {
+      // nothing stored yet
+    } catch (final IOException | RuntimeException exc) {
+      LOG.warn("ignoring corrupt schema store {}: {}", file, exc.toString());
+      entries.clear();
+      rewrite = true;
+    }
+  }
+
+  private void append(final List<Entry> added) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    final var empty = !Files.exists(file) || Files.size(file) == 0;
+    try (final var out = new DataOutputStream(new BufferedOutputStream(
+      Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+      if (empty) {
+        writeHeader(out);
+      }
+      for (final var entry : added) {
+        entry.write(out);
+      }
+    }
+  }
+
+  // writes a new file and moves it over the old one atomically
+  private void replace(final List<Entry> all) throws IOException {
+    final var directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    final var temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try (final var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      writeHeader(out);
+      for (final var entry : all) {
+        entry.write(out);
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void writeHeader(final DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeUTF(version);
+  }
+
+  private static byte[] digest(final byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (final NoSuchAlgorithmException exc) {
+      // every JVM has to support SHA-256
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  // from a properties file next to the class or in its jar, "unknown" if there is none
+  private static String version(
+    final Class<?> type,
+    final String resource
+  ) {
+    try (final var in = type.getResourceAsStream(resource)) {
+      if (null != in) {
+        final var properties = new Properties();
+        properties.load(in);
+        final var version = properties.getProperty("version");
+        if (null != version && !version.isBlank() && !version.startsWith("${")) {
+          return version;
+        }
+      }
+    } catch (final IOException exc) {
+      LOG.debug("failed to read version of {}", type, exc);
+    }
+    LOG.warn("no version for {}, schema stores can't detect a version change", type.getName());
+    return "unknown";
+  }
+
+  private static final class Entry {
+
+    private final byte kind;
+    private final byte[] digest;
+    private final byte[] content;
+
+    private Entry(
+      final byte kind,
+      final byte[] digest,
+      final byte[] content
+    ) {
+      this.kind = kind;
+      this.digest = digest;
+      this.content = content;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry of(final Object schema) throws IOException {
+      final byte kind;
+      final byte[] content;
+      if (schema instanceof String) {
+        kind = KIND_JSON_SCHEMA;
+        content = ((String) schema).getBytes(StandardCharsets.UTF_8);
+      } else {
+        kind = KIND_MAP_SCHEMA;
+        content = MAPPER.writerFor(MAP_SCHEMA).writeValueAsBytes((Map<String, FieldDefinition>) schema);
+      }
+      return new Entry(kind, digest(content), content);
+    }
+
+    private void write(final DataOutputStream out) throws IOException {
+      out.writeByte(kind);
+      out.write(digest);
+      out.writeInt(content.length);
+      out.write(content);
+    }
+  }
+
+  private static final class ByteArrayKey {
+
+    private final byte[] bytes;
+
+    private ByteArrayKey(final byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof ByteArrayKey && Arrays.equals(bytes, ((ByteArrayKey) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(bytes);
+    }
+  }
+}
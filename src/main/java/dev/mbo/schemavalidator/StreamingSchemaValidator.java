@@ -0,0 +1,230 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates JSON against a {@link CompiledSchema} while reading it from a {@link JsonParser}, without building a
+ * <code>Map</code> first. Scalar values are read the same way jackson would put them into a map and checked by the
+ * same field checks as {@link CompiledSchema#validate(java.util.Map)}. Fields that are not part of the schema are skipped.
+ * <p>
+ * Memory use only depends on the nesting depth of the schema, not on the size of the document. The exception are
+ * <code>List</code> fields and fields that reference a named schema: their values are read into lists and maps before
+ * they are checked.
+ */
+public final class StreamingSchemaValidator {
+
+  private final CompiledSchema schema;
+  private final boolean failFast;
+
+  /**
+   * @param schema   Schema to validate against, see {@link ValidateSchemaValidator#compile(java.util.Map)}.
+   * @param failFast Stop reading at the first violation instead of collecting all of them.
+   */
+  public StreamingSchemaValidator(
+    final CompiledSchema schema,
+    final boolean failFast
+  ) {
+    this.schema = schema;
+    this.failFast = failFast;
+  }
+
+  /**
+   * Reads one JSON object from the parser. The parser may be positioned before or on its start token and is left on
+   * its end token, or on the token that caused validation to stop.
+   *
+   * @param parser Parser to read from. It is not closed.
+   * @return Violations, empty if the object is valid.
+   * @throws IllegalStateException if the input is not well-formed JSON or can't be read.
+   */
+  public List<Violation> validate(final JsonParser parser) {
+    final var sink = new ViolationSink(failFast ? 1 : Integer.MAX_VALUE);
+    validate(parser, sink);
+    return sink.violations();
+  }
+
+  /**
+   * Like {@link #validate(JsonParser)} but reports into the given sink. Reading also stops once the sink is full.
+   *
+   * @return true if the object is valid.
+   */
+  public boolean validate(
+    final JsonParser parser,
+    final ViolationSink sink
+  ) {
+    final var before = sink.size();
+    try {
+      read(parser, sink);
+    } catch (final IOException exc) {
+      throw new IllegalStateException(exc);
+    }
+    return sink.size() == before;
+  }
+
+  private void read(
+    final JsonParser parser,
+    final ViolationSink sink
+  ) throws IOException {
+    var token = null == parser.currentToken() ? parser.nextToken() : parser.currentToken();
+    if (token != JsonToken.START_OBJECT) {
+      sink.at("");
+      sink.report("", Violation.RULE_TYPE, null, Object.class.getSimpleName());
+      return;
+    }
+    final var frames = new ArrayDeque<Frame>();
+    frames.push(new Frame(schema));
+    while (!frames.isEmpty()) {
+      token = parser.nextToken();
+      final var frame = frames.peek();
+      if (token == JsonToken.END_OBJECT) {
+        frames.pop();
+        if (checkMissing(frame, sink)) {
+          return;
+        }
+        continue;
+      }
+      if (token != JsonToken.FIELD_NAME) {
+        throw new IllegalStateException("unexpected token " + token);
+      }
+      final var index = frame.schema.indexOf(parser.currentName());
+      token = parser.nextToken();
+      if (index < 0) {
+        parser.skipChildren();
+        continue;
+      }
+      frame.seen[index] = true;
+      final var field = frame.schema.field(index);
+      if (token == JsonToken.START_OBJECT && null != field.nested()) {
+        frames.push(new Frame(field.nested()));
+      } else if (token == JsonToken.START_ARRAY && ListCheck.LIST_TYPE.equals(field.type())
+        || token == JsonToken.START_OBJECT && field.check() instanceof RefCheck) {
+        if (!field.validate(readContainer(parser, token), sink) && stop(sink)) {
+          return;
+        }
+      } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        sink.at(field.path());
+        sink.report(field.key(), Violation.RULE_TYPE, token.asString(), field.type());
+        if (stop(sink)) {
+          return;
+        }
+      } else if (!field.validate(scalarValue(parser, token), sink) && stop(sink)) {
+        return;
+      }
+    }
+  }
+
+  // the same types jackson uses when reading into a Map<String, Object>
+  private static Object scalarValue(
+    final JsonParser parser,
+    final JsonToken token
+  ) throws IOException {
+    switch (token) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getNumberValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        return parser.getEmbeddedObject();
+    }
+  }
+
+  // reads the array or object the parser is on into lists and maps and leaves the parser on its end, iteratively so
+  // deeply nested input can't overflow the stack
+  private static Object readContainer(
+    final JsonParser parser,
+    final JsonToken start
+  ) throws IOException {
+    final var root = newContainer(start);
+    final var containers = new ArrayDeque<>();
+    containers.push(root);
+    while (!containers.isEmpty()) {
+      final var token = parser.nextToken();
+      if (null == token) {
+        throw new IllegalStateException("unexpected end of input");
+      }
+      if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+        containers.pop();
+        continue;
+      }
+      if (token == JsonToken.FIELD_NAME) {
+        continue;
+      }
+      final var structured = token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT;
+      final var value = structured ? newContainer(token) : scalarValue(parser, token);
+      final var parent = containers.peek();
+      if (parent instanceof List) {
+        @SuppressWarnings("unchecked") final var list = (List<Object>) parent;
+        list.add(value);
+      } else {
+        @SuppressWarnings("unchecked") final var object = (Map<String, Object>) parent;
+        object.put(parser.currentName(), value);
+      }
+      if (structured) {
+        containers.push(value);
+      }
+    }
+    return root;
+  }
+
+  private static Object newContainer(final JsonToken start) {
+    return start == JsonToken.START_ARRAY ? new ArrayList<>() : new LinkedHashMap<String, Object>();
+  }
+
+  // true if validation should stop
+  private boolean checkMissing(
+    final Frame frame,
+    final ViolationSink sink
+  ) {
+    for (var i = 0; i < frame.seen.length; i++) {
+      if (!frame.seen[i] && !frame.schema.field(i).validate(null, sink) && stop(sink)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean stop(final ViolationSink sink) {
+    return failFast || sink.isFull();
+  }
+
+  private static final class Frame {
+    private final CompiledSchema schema;
+    private final boolean[] seen;
+
+    private Frame(final CompiledSchema schema) {
+      this.schema = schema;
+      this.seen = new boolean[schema.size()];
+    }
+  }
+}
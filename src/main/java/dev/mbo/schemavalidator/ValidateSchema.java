@@ -45,4 +45,13 @@ public @interface ValidateSchema {
 
   String jsonSchema() default "";
 
+  /**
+   * Report every violation (up to <code>maxViolations</code>) as its own constraint violation instead of a single one
+   * for the whole object. The property path of each violation is the data field name followed by the JSON pointer of
+   * the offending value, e.g. <code>data/nested/test</code>.
+   */
+  boolean collectAll() default false;
+
+  int maxViolations() default 100;
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Annotation attributes and field accessors of a class annotated with {@link ValidateSchema}. Resolved once per class,
+ * so reading data and schema from an instance is a method handle invocation without reflection or access checks.
+ */
+final class ValidateSchemaTarget {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final ClassValue<ValidateSchemaTarget> TARGETS = new ClassValue<>() {
+    @Override
+    protected ValidateSchemaTarget computeValue(final Class<?> type) {
+      return resolve(type);
+    }
+  };
+
+  private final ValidateType type;
+  private final MethodHandle dataGetter;
+  private final MethodHandle schemaGetter;
+  // resolution failures are cached as well so broken classes don't repeat the reflection work
+  private final String error;
+
+  private ValidateSchemaTarget(
+    final ValidateType type,
+    final MethodHandle dataGetter,
+    final MethodHandle schemaGetter,
+    final String error
+  ) {
+    this.type = type;
+    this.dataGetter = dataGetter;
+    this.schemaGetter = schemaGetter;
+    this.error = error;
+  }
+
+  static ValidateSchemaTarget of(final Class<?> clazz) {
+    return TARGETS.get(clazz);
+  }
+
+  ValidateType type() {
+    checkResolved();
+    return type;
+  }
+
+  Object data(final Object o) {
+    checkResolved();
+    return invoke(dataGetter, o);
+  }
+
+  // the schema map for MAP, the JSON schema string for JSON_SCHEMA
+  Object schema(final Object o) {
+    checkResolved();
+    return invoke(schemaGetter, o);
+  }
+
+  private void checkResolved() {
+    if (null != error) {
+      throw new IllegalStateException(error);
+    }
+  }
+
+  private static Object invoke(
+    final MethodHandle getter,
+    final Object o
+  ) {
+    try {
+      return (Object) getter.invokeExact(o);
+    } catch (final RuntimeException | Error exc) {
+      throw exc;
+    } catch (final Throwable exc) {
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  private static ValidateSchemaTarget resolve(final Class<?> clazz) {
+    final var annotation = findAnnotation(clazz);
+    if (null == annotation) {
+      return failed(clazz + " is not annotated with @" + ValidateSchema.class.getSimpleName());
+    }
+    final var validateType = annotation.type();
+    final String schemaFieldName;
+    switch (validateType) {
+      case MAP:
+        schemaFieldName = annotation.schemaFieldName();
+        break;
+      case JSON_SCHEMA:
+        schemaFieldName = annotation.jsonSchema();
+        break;
+      default:
+        return failed("unsupported type: " + validateType);
+    }
+    try {
+      return new ValidateSchemaTarget(
+        validateType,
+        getter(clazz, annotation.dataFieldName()),
+        getter(clazz, schemaFieldName),
+        null
+      );
+    } catch (final NoSuchFieldException | IllegalAccessException | RuntimeException exc) {
+      return failed(clazz + ": " + exc);
+    }
+  }
+
+  private static ValidateSchemaTarget failed(final String error) {
+    return new ValidateSchemaTarget(null, null, null, error);
+  }
+
+  private static ValidateSchema findAnnotation(final Class<?> clazz) {
+    for (Class<?> c = clazz; null != c; c = c.getSuperclass()) {
+      final var annotation = c.getDeclaredAnnotation(ValidateSchema.class);
+      if (null != annotation) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private static MethodHandle getter(
+    final Class<?> clazz,
+    final String fieldName
+  ) throws NoSuchFieldException, IllegalAccessException {
+    for (Class<?> c = clazz; null != c; c = c.getSuperclass()) {
+      try {
+        final var field = c.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+      } catch (final NoSuchFieldException exc) {
+        // try the superclass
+      }
+    }
+    throw new NoSuchFieldException(fieldName);
+  }
+}
@@ -16,7 +16,9 @@
 
 package dev.mbo.schemavalidator;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.ValidationMessage;
 import dev.mbo.schemavalidator.fieldvalidator.BigDecimalFieldValidator;
 import dev.mbo.schemavalidator.fieldvalidator.DoubleFieldValidator;
 import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
@@ -28,8 +30,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
-import java.util.HashMap;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class ValidateSchemaValidator implements ConstraintValidator<ValidateSchema, Object> {
 
@@ -44,7 +48,15 @@ public class ValidateSchemaValidator implements ConstraintValidator<ValidateSche
     new BigDecimalFieldValidator(),
     new LongFieldValidator()
   };
-  private static Map<String, FieldValidator<?>> VALIDATOR_MAP = null;
+  private static final DefaultEngine DEFAULT_ENGINE = new DefaultEngine();
+
+  /**
+   * The engine used by validators created without one and by the static methods of this class. Built with the
+   * default validators on first use unless {@link #initMapValidators} was called before.
+   */
+  public static ValidatorEngine defaultEngine() {
+    return DEFAULT_ENGINE.get();
+  }
 
   /**
    * Call this method in application setup phase to override all default validator.
@@ -52,46 +64,146 @@ public class ValidateSchemaValidator implements ConstraintValidator<ValidateSche
    * @param validators Custom validators to override the default list. If this array contains at least one object this
    *                   replaces ALL default validators. You can access the default validators via
    *                   <code>DEFAULT_FIELD_VALIDATORS</code>.
+   * @deprecated Build a {@link ValidatorEngine} with its own validators and inject it with
+   * {@link EngineConstraintValidatorFactory}. Only the first call before the default engine is used has an effect.
    */
+  @Deprecated
   public static void initMapValidators(final FieldValidator<?>... validators) {
-    if (null == VALIDATOR_MAP) {
-      LOG.debug("init map validators");
-      if (null == validators || validators.length < 1) {
-        LOG.debug("using default validators");
-        initMapValidatorsShared(DEFAULT_FIELD_VALIDATORS);
-      } else {
-        LOG.debug("using provided validators");
-        initMapValidatorsShared(validators);
+    DEFAULT_ENGINE.initMapValidators(validators);
+  }
+
+  /**
+   * @deprecated Build a {@link ValidatorEngine} with its own mapper.
+   */
+  @Deprecated
+  public static void setObjectMapper(final ObjectMapper externalOM) {
+    DEFAULT_ENGINE.setObjectMapper(externalOM);
+  }
+
+  // the default engine and what the deprecated setters configured before its first use, so the order of the setters
+  // doesn't matter
+  static final class DefaultEngine {
+
+    private final Object lock = new Object();
+    private volatile ValidatorEngine engine;
+    // guarded by lock, only used until the engine is built
+    private ObjectMapper objectMapper;
+
+    ValidatorEngine get() {
+      final var current = engine;
+      if (null != current) {
+        return current;
+      }
+      synchronized (lock) {
+        if (null == engine) {
+          LOG.debug("init default engine");
+          engine = ValidatorEngine.builder().objectMapper(objectMapper).build();
+        }
+        return engine;
       }
     }
-  }
 
-  private static void initMapValidatorsShared(final FieldValidator<?>[] validators) {
-    VALIDATOR_MAP = new HashMap<>(validators.length);
-    for (final var validator : validators) {
-      if (null != VALIDATOR_MAP.put(validator.supportsType().getSimpleName(), validator)) {
-        throw new IllegalStateException("duplicate validator for type " + validator.supportsType());
+    void initMapValidators(final FieldValidator<?>... validators) {
+      synchronized (lock) {
+        if (null == engine) {
+          LOG.debug("init default engine with map validators");
+          engine = ValidatorEngine.builder().validators(validators).objectMapper(objectMapper).build();
+        } else if (null != validators && validators.length > 0) {
+          LOG.warn("map validators are already initialized, ignoring {} validators", validators.length);
+        }
+      }
+    }
+
+    void setObjectMapper(final ObjectMapper objectMapper) {
+      synchronized (lock) {
+        if (null == engine) {
+          this.objectMapper = objectMapper;
+        } else {
+          engine = engine.toBuilder().objectMapper(objectMapper).build();
+        }
       }
     }
   }
 
+  /**
+   * @see ValidatorEngine#compile(Map)
+   */
+  public static CompiledSchema compile(final Map<String, FieldDefinition> schema) {
+    return defaultEngine().compile(schema);
+  }
+
+  /**
+   * @see ValidatorEngine#validateAll(Map, Iterable)
+   */
+  public static BatchResult validateAll(
+    final Map<String, FieldDefinition> schema,
+    final Iterable<? extends Map<String, Object>> records
+  ) {
+    return defaultEngine().validateAll(schema, records);
+  }
+
+  /**
+   * @see ValidatorEngine#validateAll(Map, Stream)
+   */
+  public static BatchResult validateAll(
+    final Map<String, FieldDefinition> schema,
+    final Stream<? extends Map<String, Object>> records
+  ) {
+    return defaultEngine().validateAll(schema, records);
+  }
+
   // ---------- JSON SCHEMA --------------
 
-  private static ObjectMapper objectMapper = null;
-  private static JsonSchemaCache jsonSchemaCache = null;
+  /**
+   * @see ValidatorEngine#validateJson(String, JsonNode)
+   */
+  public static Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final JsonNode jsonData
+  ) {
+    return defaultEngine().validateJson(jsonSchema, jsonData);
+  }
 
-  private static void initJsonSchemaValidator() {
-    if (null == jsonSchemaCache) {
-      LOG.debug("init json schema cache");
-      jsonSchemaCache = new JsonSchemaCache();
-      if (null == objectMapper) {
-        objectMapper = new ObjectMapper();
-      }
-    }
+  /**
+   * @see ValidatorEngine#validateJson(String, byte[])
+   */
+  public static Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final byte[] json
+  ) {
+    return defaultEngine().validateJson(jsonSchema, json);
   }
 
-  public static void setObjectMapper(final ObjectMapper externalOM) {
-    objectMapper = externalOM;
+  /**
+   * @see ValidatorEngine#validateJson(String, InputStream)
+   */
+  public static Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final InputStream json
+  ) {
+    return defaultEngine().validateJson(jsonSchema, json);
+  }
+
+  // null means the default engine, resolved on every call so setObjectMapper is still picked up
+  private final ValidatorEngine engine;
+
+  public ValidateSchemaValidator() {
+    this(null);
+  }
+
+  public ValidateSchemaValidator(final ValidatorEngine engine) {
+    this.engine = engine;
+  }
+
+  private boolean collectAll = false;
+  private int maxViolations = 1;
+  private String dataFieldName = "";
+
+  @Override
+  public void initialize(final ValidateSchema constraintAnnotation) {
+    collectAll = constraintAnnotation.collectAll();
+    maxViolations = collectAll ? Math.max(1, constraintAnnotation.maxViolations()) : 1;
+    dataFieldName = constraintAnnotation.dataFieldName();
   }
 
   @Override
@@ -99,127 +211,132 @@ public class ValidateSchemaValidator implements ConstraintValidator<ValidateSche
     final Object o,
     final ConstraintValidatorContext context
   ) {
-    try {
-      final var dataWithSchema = loadDataWithSchema(o);
-      validate(dataWithSchema);
-    } catch (final IllegalStateException exc) {
-      LOG.debug("validation failed", exc);
-      return false;
+    final var currentEngine = null == engine ? defaultEngine() : engine;
+    final var metrics = currentEngine.metrics();
+    if (metrics != ValidationMetrics.NONE) {
+      return isValidMeasured(o, context, currentEngine, metrics);
+    }
+    try (final var sink = ViolationSink.acquire(maxViolations)) {
+      final boolean valid;
+      try {
+        valid = validate(currentEngine, loadDataWithSchema(o), sink);
+      } catch (final IllegalStateException exc) {
+        // broken configuration or unparsable data
+        LOG.debug("validation failed", exc);
+        return false;
+      }
+      if (!valid && collectAll && !sink.isEmpty()) {
+        reportViolations(sink, context);
+      }
+      return valid;
     }
-    return true;
   }
 
-  // called recursively for nested fields
-  private void validate(final DataWithSchema dataWithSchema) {
-    if (dataWithSchema.type == ValidateType.MAP) {
-      initMapValidators();
-      for (final String schemaKey : dataWithSchema.schema.keySet()) {
-        final var schema = dataWithSchema.schema.get(schemaKey);
-        final var data = dataWithSchema.data.get(schemaKey);
-        validateField(schemaKey, schema, data);
+  private boolean isValidMeasured(
+    final Object o,
+    final ConstraintValidatorContext context,
+    final ValidatorEngine currentEngine,
+    final ValidationMetrics metrics
+  ) {
+    final var start = System.nanoTime();
+    final var schemaName = o.getClass().getName();
+    ValidateType type = null;
+    try (final var sink = ViolationSink.acquire(maxViolations)) {
+      boolean valid;
+      try {
+        final var dataWithSchema = loadDataWithSchema(o);
+        type = dataWithSchema.type;
+        final var fields = fieldCount(dataWithSchema.data);
+        if (fields >= 0) {
+          metrics.fieldCount(schemaName, fields);
+        }
+        valid = validate(currentEngine, dataWithSchema, sink);
+      } catch (final IllegalStateException exc) {
+        LOG.debug("validation failed", exc);
+        metrics.violation(schemaName, Violation.RULE_INVALID);
+        valid = false;
+      }
+      for (var i = 0; i < sink.size(); i++) {
+        metrics.violation(schemaName, sink.get(i).getRule());
       }
-    } else if (dataWithSchema.type == ValidateType.JSON_SCHEMA) {
-      initJsonSchemaValidator();
-      validateJsonSchema(dataWithSchema);
+      if (!valid && collectAll && !sink.isEmpty()) {
+        reportViolations(sink, context);
+      }
+      metrics.validated(schemaName, type, valid, System.nanoTime() - start);
+      return valid;
     }
   }
 
-  private void validateJsonSchema(final DataWithSchema dataWithSchema) {
-    final var jsonSchema = jsonSchemaCache.getOrAdd(dataWithSchema.jsonSchema);
-    final var jsonData = objectMapper.valueToTree(dataWithSchema.data);
-
-    final var result = jsonSchema.validate(jsonData);
-    if (!result.isEmpty()) {
-      throw new IllegalStateException("validation had errors: " + result);
+  // -1 if unknown
+  private static int fieldCount(final Object data) {
+    if (data instanceof Map) {
+      return ((Map<?, ?>) data).size();
+    } else if (data instanceof JsonNode && ((JsonNode) data).isObject()) {
+      return ((JsonNode) data).size();
     }
+    return -1;
   }
 
-  // validate single field with schema
-  private void validateField(
-    final String schemaKey,
-    final FieldDefinition fieldDefinition,
-    final Object data
+  private void reportViolations(
+    final ViolationSink sink,
+    final ConstraintValidatorContext context
   ) {
-    if (fieldDefinition.getNullable() == Boolean.FALSE && data == null) {
-      throw new IllegalStateException("data is missing required field " + schemaKey);
-    }
-    if (fieldDefinition.getType().equals(Object.class.getSimpleName())) {
-      validateNestedObject(data, fieldDefinition);
-    } else {
-      validateFieldWithValidator(schemaKey, data, fieldDefinition);
+    context.disableDefaultConstraintViolation();
+    for (var i = 0; i < sink.size(); i++) {
+      final var violation = sink.get(i);
+      context.buildConstraintViolationWithTemplate(escapeTemplate(violation.getMessage()))
+        .addPropertyNode(dataFieldName + violation.getPath())
+        .addConstraintViolation();
     }
   }
 
-  private void validateNestedObject(
-    final Object data,
-    final FieldDefinition fieldDefinition
-  ) {
-    try {
-      LOG.debug("validate nested object");
-      final var nestedSchema = fieldDefinition.getNested();
-      @SuppressWarnings("unchecked") final var nestedObject = (Map<String, Object>) data;
-      validate(new DataWithSchema(ValidateType.MAP, nestedSchema, null, nestedObject));
-    } catch (final ClassCastException exc) {
-      throw new IllegalStateException(exc);
+  // messages contain data values which must not be interpreted as message parameters or expressions
+  private static String escapeTemplate(final String message) {
+    final var escaped = new StringBuilder(message.length() + 8);
+    for (var i = 0; i < message.length(); i++) {
+      final var c = message.charAt(i);
+      if (c == '\\' || c == '{' || c == '}' || c == '$') {
+        escaped.append('\\');
+      }
+      escaped.append(c);
     }
+    return escaped.toString();
   }
 
-  private void validateFieldWithValidator(
-    final String schemaKey,
-    final Object data,
-    final FieldDefinition fieldDefinition
+  private static boolean validate(
+    final ValidatorEngine currentEngine,
+    final DataWithSchema dataWithSchema,
+    final ViolationSink sink
   ) {
-    final var validator = VALIDATOR_MAP.get(fieldDefinition.getType());
-    if (null == validator) {
-      throw new IllegalStateException("no validator for " + fieldDefinition.getType());
-    } else {
-      validator.validate(schemaKey, data, fieldDefinition);
+    if (dataWithSchema.type == ValidateType.MAP) {
+      return currentEngine.validateMap(dataWithSchema.schema, dataWithSchema.data, sink);
     }
+    return currentEngine.validateJsonSchema(dataWithSchema.jsonSchema, dataWithSchema.data, sink);
   }
 
+  @SuppressWarnings("unchecked")
   private DataWithSchema loadDataWithSchema(final Object o) {
-    final var clazz = o.getClass();
-    final var annotation = clazz.getDeclaredAnnotation(ValidateSchema.class);
-
-    final ValidateType validateType = annotation.type();
-    final Map<String, Object> data;
-    Map<String, FieldDefinition> schema = null;
-    String jsonSchema = null;
+    final var target = ValidateSchemaTarget.of(o.getClass());
+    final var validateType = target.type();
     try {
-      data = getFieldFromAnnotatedClass(clazz, annotation.dataFieldName(), o);
-      switch (validateType) {
-        case MAP:
-          schema = getFieldFromAnnotatedClass(clazz, annotation.schemaFieldName(), o);
-          break;
-        case JSON_SCHEMA:
-          jsonSchema = getFieldFromAnnotatedClass(clazz, annotation.jsonSchema(), o);
-          break;
-        default:
-          throw new IllegalStateException("unsupported type: " + validateType);
+      final var data = target.data(o);
+      final var schema = target.schema(o);
+      if (validateType == ValidateType.MAP) {
+        return new DataWithSchema(validateType, (Map<String, FieldDefinition>) schema, null, data);
       }
-      return new DataWithSchema(validateType, schema, jsonSchema, data);
-    } catch (final ClassCastException | NoSuchFieldException | IllegalAccessException exc) {
+      return new DataWithSchema(validateType, null, (String) schema, data);
+    } catch (final ClassCastException exc) {
       throw new IllegalStateException(exc);
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private <T> T getFieldFromAnnotatedClass(
-    Class<?> clazz,
-    String fieldName,
-    Object o
-  ) throws NoSuchFieldException, IllegalAccessException {
-    final var field = clazz.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return (T) field.get(o);
-  }
-
   @Value
   private static class DataWithSchema {
     ValidateType type;
     Map<String, FieldDefinition> schema;
     String jsonSchema;
-    Map<String, Object> data;
+    // Map for MAP; Map, JsonNode or raw JSON (String, byte[]) for JSON_SCHEMA
+    Object data;
   }
 
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+/**
+ * Receives what happens during validation through {@link ValidateSchemaValidator}. Bind an implementation, e.g. the
+ * Micrometer one of the <code>schema-validator-micrometer</code> module, with
+ * {@link ValidatorEngine.Builder#metrics(ValidationMetrics)}. With the default {@link #NONE} validation doesn't even
+ * read the clock. Statistics of the JSON schema cache are pulled from {@link JsonSchemaCache} instead.
+ * <p>
+ * Implementations are called on the validating threads and must be thread-safe and cheap.
+ */
+public interface ValidationMetrics {
+
+  ValidationMetrics NONE = new ValidationMetrics() {
+  };
+
+  /**
+   * @param schema Fully qualified name of the validated class.
+   * @param type   Kind of schema.
+   * @param valid  Outcome.
+   * @param nanos  Time it took including loading data and schema from the object.
+   */
+  default void validated(
+    final String schema,
+    final ValidateType type,
+    final boolean valid,
+    final long nanos
+  ) {
+  }
+
+  /**
+   * Called for each reported violation, i.e. only for the first one unless <code>collectAll</code> is set.
+   *
+   * @param rule One of the <code>Violation.RULE_*</code> constants.
+   */
+  default void violation(
+    final String schema,
+    final String rule
+  ) {
+  }
+
+  /**
+   * @param fields Number of top level fields of the validated data, only known for maps and JSON objects.
+   */
+  default void fieldCount(
+    final String schema,
+    final int fields
+  ) {
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * Validates every record of an upstream publisher and publishes one {@link ValidationResult} per record in upstream
+ * order. Records are requested from upstream as the subscriber requests results, but never more than
+ * <code>window</code> records whose result isn't published yet. So a slow subscriber slows down the upstream, and even
+ * an unbounded demand keeps at most <code>window</code> validations in flight. Those validations run in parallel,
+ * only publishing the results is serialized.
+ */
+final class ValidationPublisher implements Flow.Publisher<ValidationResult> {
+
+  private final Flow.Publisher<? extends Map<String, Object>> records;
+  private final Function<Map<String, Object>, CompletableFuture<List<Violation>>> validation;
+  private final int window;
+
+  ValidationPublisher(
+    final Flow.Publisher<? extends Map<String, Object>> records,
+    final Function<Map<String, Object>, CompletableFuture<List<Violation>>> validation,
+    final int window
+  ) {
+    if (window < 1) {
+      throw new IllegalArgumentException("invalid window " + window);
+    }
+    this.records = records;
+    this.validation = validation;
+    this.window = window;
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super ValidationResult> subscriber) {
+    records.subscribe(new Relay(subscriber, validation, window));
+  }
+
+  private static final class Relay implements Flow.Subscriber<Map<String, Object>>, Flow.Subscription {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Flow.Subscriber<? super ValidationResult> downstream;
+    private final Function<Map<String, Object>, CompletableFuture<List<Violation>>> validation;
+    private final int window;
+    private final Object lock = new Object();
+    private volatile Flow.Subscription upstream;
+    private volatile boolean done;
+    // completes when everything signalled so far was delivered, guarded by lock
+    private CompletableFuture<Void> tail = DONE;
+    // requested by downstream but not from upstream yet, guarded by lock
+    private long demand;
+    // requested from upstream but not published yet, at most window, guarded by lock
+    private long inFlight;
+    // signals from upstream are serialized, so this is only touched by one thread at a time
+    private long index;
+
+    private Relay(
+      final Flow.Subscriber<? super ValidationResult> downstream,
+      final Function<Map<String, Object>, CompletableFuture<List<Violation>>> validation,
+      final int window
+    ) {
+      this.downstream = downstream;
+      this.validation = validation;
+      this.window = window;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+      upstream = subscription;
+      downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        upstream.cancel();
+        final var exc = new IllegalArgumentException("non-positive request " + n);
+        deliverInOrder(ignored -> {
+          fail(exc);
+          return DONE;
+        });
+        return;
+      }
+      synchronized (lock) {
+        // saturates at Long.MAX_VALUE, which means unbounded
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      requestUpstream();
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+      upstream.cancel();
+    }
+
+    // the validation starts right away, only its result waits for the results of the records before it
+    @Override
+    public void onNext(final Map<String, Object> record) {
+      final var current = index++;
+      if (done) {
+        return;
+      }
+      final var result = start(record);
+      deliverInOrder(ignored -> result.handle((violations, exc) -> {
+        synchronized (lock) {
+          inFlight--;
+        }
+        if (null != exc) {
+          fail(exc instanceof CompletionException && null != exc.getCause() ? exc.getCause() : exc);
+        } else if (!done) {
+          downstream.onNext(new ValidationResult(current, record, violations));
+          requestUpstream();
+        }
+        return null;
+      }));
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      deliverInOrder(ignored -> {
+        if (!done) {
+          done = true;
+          downstream.onError(throwable);
+        }
+        return DONE;
+      });
+    }
+
+    @Override
+    public void onComplete() {
+      deliverInOrder(ignored -> {
+        if (!done) {
+          done = true;
+          downstream.onComplete();
+        }
+        return DONE;
+      });
+    }
+
+    // asks upstream for as many records as downstream wants and the window allows, never while holding the lock
+    private void requestUpstream() {
+      final long n;
+      synchronized (lock) {
+        n = Math.min(demand, window - inFlight);
+        if (done || n <= 0) {
+          return;
+        }
+        demand -= n;
+        inFlight += n;
+      }
+      upstream.request(n);
+    }
+
+    private CompletableFuture<List<Violation>> start(final Map<String, Object> record) {
+      try {
+        return validation.apply(record);
+      } catch (final RuntimeException exc) {
+        return CompletableFuture.failedFuture(exc);
+      }
+    }
+
+    // every signal to downstream goes through here, so they never overlap and keep their order
+    private void deliverInOrder(final Function<Void, CompletionStage<Void>> delivery) {
+      final var next = new CompletableFuture<Void>();
+      final CompletableFuture<Void> previous;
+      synchronized (lock) {
+        previous = tail;
+        tail = next;
+      }
+      // the tail moved on before delivering, so signals caused by the delivery queue up behind it
+      previous.thenCompose(delivery).whenComplete((ignored, exc) -> next.complete(null));
+    }
+
+    // only called while delivering
+    private void fail(final Throwable throwable) {
+      if (!done) {
+        done = true;
+        upstream.cancel();
+        downstream.onError(throwable);
+      }
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of one record of a stream validated by {@link AsyncValidator}.
+ */
+@Value
+public class ValidationResult {
+  // position of the record in the stream, starting at 0
+  long index;
+  Map<String, Object> record;
+  List<Violation> violations;
+
+  public boolean isValid() {
+    return violations.isEmpty();
+  }
+}
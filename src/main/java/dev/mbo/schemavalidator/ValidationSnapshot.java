@@ -0,0 +1,178 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Violations of a validated record per field of its {@link CompiledSchema}, so a changed record can be validated
+ * again by checking only the fields that changed, see {@link CompiledSchema#revalidate}.
+ * <p>
+ * Snapshots are immutable and can be cached next to the record. A revalidation shares the outcomes of all unchanged
+ * fields with its base and only copies them along the changed paths.
+ */
+public final class ValidationSnapshot {
+
+  private final CompiledSchema schema;
+  // per field: the violations of the field checked as a whole, or the snapshot of a nested object
+  private final Object[] outcomes;
+  private final int violationCount;
+
+  private ValidationSnapshot(
+    final CompiledSchema schema,
+    final Object[] outcomes,
+    final int violationCount
+  ) {
+    this.schema = schema;
+    this.outcomes = outcomes;
+    this.violationCount = violationCount;
+  }
+
+  public boolean isValid() {
+    return violationCount == 0;
+  }
+
+  public int violationCount() {
+    return violationCount;
+  }
+
+  /**
+   * @return All violations in the order a full validation reports them.
+   */
+  public List<Violation> violations() {
+    if (violationCount == 0) {
+      return List.of();
+    }
+    final var violations = new ArrayList<Violation>(violationCount);
+    collect(violations);
+    return Collections.unmodifiableList(violations);
+  }
+
+  private void collect(final List<Violation> violations) {
+    for (final var outcome : outcomes) {
+      if (outcome instanceof ValidationSnapshot) {
+        ((ValidationSnapshot) outcome).collect(violations);
+      } else {
+        @SuppressWarnings("unchecked") final var fieldViolations = (List<Violation>) outcome;
+        violations.addAll(fieldViolations);
+      }
+    }
+  }
+
+  CompiledSchema schema() {
+    return schema;
+  }
+
+  static ValidationSnapshot of(
+    final CompiledSchema schema,
+    final Map<String, Object> data,
+    final ViolationSink sink
+  ) {
+    final var outcomes = new Object[schema.size()];
+    var count = 0;
+    for (var i = 0; i < outcomes.length; i++) {
+      final var field = schema.field(i);
+      outcomes[i] = outcome(field, data.get(field.key()), sink);
+      count += count(outcomes[i]);
+    }
+    return new ValidationSnapshot(schema, outcomes, count);
+  }
+
+  // nested objects get their own snapshot, everything else is checked like in a full validation
+  private static Object outcome(
+    final CompiledSchema.CompiledField field,
+    final Object value,
+    final ViolationSink sink
+  ) {
+    if (null != field.nested() && value instanceof Map) {
+      @SuppressWarnings("unchecked") final var nestedObject = (Map<String, Object>) value;
+      return of(field.nested(), nestedObject, sink);
+    }
+    if (field.validate(value, sink)) {
+      return List.of();
+    }
+    final var violations = sink.violations();
+    sink.clear();
+    return Collections.unmodifiableList(violations);
+  }
+
+  private static int count(final Object outcome) {
+    return outcome instanceof ValidationSnapshot
+      ? ((ValidationSnapshot) outcome).violationCount
+      : ((List<?>) outcome).size();
+  }
+
+  ValidationSnapshot revalidate(
+    final Map<String, Object> data,
+    final Collection<String> changed,
+    final ViolationSink sink
+  ) {
+    var snapshot = this;
+    for (final var change : changed) {
+      if (change.isEmpty()) {
+        // the pointer to the whole record
+        return of(schema, data, sink);
+      }
+      snapshot = snapshot.revalidate(data, segments(change), 0, sink);
+    }
+    return snapshot;
+  }
+
+  // a key or the segments of a JSON pointer (RFC 6901)
+  private static String[] segments(final String change) {
+    if (change.charAt(0) != '/') {
+      return new String[]{change};
+    }
+    final var segments = change.substring(1).split("/", -1);
+    for (var i = 0; i < segments.length; i++) {
+      segments[i] = segments[i].replace("~1", "/").replace("~0", "~");
+    }
+    return segments;
+  }
+
+  // descends through nested objects as far as the path goes, lists and referenced objects are checked as a whole
+  private ValidationSnapshot revalidate(
+    final Map<String, Object> data,
+    final String[] segments,
+    final int from,
+    final ViolationSink sink
+  ) {
+    final var index = schema.indexOf(segments[from]);
+    if (index < 0) {
+      // not part of the schema, ignored like in a full validation
+      return this;
+    }
+    final var field = schema.field(index);
+    final var value = data.get(field.key());
+    final var current = outcomes[index];
+    final Object outcome;
+    if (from + 1 < segments.length && current instanceof ValidationSnapshot && value instanceof Map) {
+      @SuppressWarnings("unchecked") final var nestedObject = (Map<String, Object>) value;
+      outcome = ((ValidationSnapshot) current).revalidate(nestedObject, segments, from + 1, sink);
+    } else {
+      outcome = outcome(field, value, sink);
+    }
+    final var copy = outcomes.clone();
+    copy[index] = outcome;
+    return new ValidationSnapshot(schema, copy, violationCount - count(current) + count(outcome));
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in, sampled per-field trace of a {@link CompiledSchema}. Without a trace the validation path doesn't do any
+ * logging work at all; with one, every n-th validation (on average) logs one line per field to the
+ * <code>dev.mbo.schemavalidator.trace</code> logger at debug level:
+ * <pre>
+ * schema=orders path=/nested/test type=String valid=false value=
+ * </pre>
+ */
+public final class ValidationTrace {
+
+  private static final Logger LOG = LoggerFactory.getLogger("dev.mbo.schemavalidator.trace");
+
+  private final String schemaName;
+  private final int oneIn;
+
+  private ValidationTrace(
+    final String schemaName,
+    final int oneIn
+  ) {
+    if (oneIn < 1) {
+      throw new IllegalArgumentException("oneIn must be positive");
+    }
+    this.schemaName = schemaName;
+    this.oneIn = oneIn;
+  }
+
+  /**
+   * Traces every validation.
+   */
+  public static ValidationTrace all(final String schemaName) {
+    return new ValidationTrace(schemaName, 1);
+  }
+
+  /**
+   * Traces one in <code>oneIn</code> validations, picked at random.
+   */
+  public static ValidationTrace sampled(
+    final String schemaName,
+    final int oneIn
+  ) {
+    return new ValidationTrace(schemaName, oneIn);
+  }
+
+  boolean sample() {
+    return LOG.isDebugEnabled() && (oneIn == 1 || ThreadLocalRandom.current().nextInt(oneIn) == 0);
+  }
+
+  void field(
+    final String path,
+    final String type,
+    final Object value,
+    final boolean valid
+  ) {
+    LOG.debug("schema={} path={} type={} valid={} value={}", schemaName, path, type, valid, value);
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.ValidationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Everything validation needs: the map validators by type, compiled MAP schemas, the JSON schema cache and the
+ * object mapper. An engine is immutable and thread-safe once built, and everything is created eagerly in
+ * {@link Builder#build()}, so engines with different validator sets can live side by side. Inject one into
+ * {@link ValidateSchemaValidator} with {@link EngineConstraintValidatorFactory}.
+ */
+public final class ValidatorEngine {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ValidatorEngine.class);
+
+  private final Map<String, FieldValidator<?>> validators;
+  private final ObjectMapper objectMapper;
+  private final JsonSchemaCache jsonSchemaCache;
+  private final ValidationMetrics metrics;
+  private final Map<String, Map<String, FieldDefinition>> definitions;
+  private final int maxDepth;
+  private final int maxNodes;
+  // compiled once per schema instance, see CompiledSchema
+  private final WeakIdentityCache<Map<String, FieldDefinition>, CompiledSchema> compiledSchemas =
+    new WeakIdentityCache<>();
+  // cache entries per schema string instance, so the same instance isn't hashed and looked up again while its entry
+  // is in the cache
+  private final WeakIdentityCache<String, JsonSchemaCache.CacheEntry> cacheEntries = new WeakIdentityCache<>();
+  // MAP schemas compiled from the SchemaStore of the cache, found by equality on the first use of an instance
+  private final Map<Map<String, FieldDefinition>, CompiledSchema> preloaded = new ConcurrentHashMap<>();
+
+  private ValidatorEngine(final Builder builder) {
+    this.validators = Collections.unmodifiableMap(validatorMap(builder.validators));
+    this.objectMapper = null == builder.objectMapper ? new ObjectMapper() : builder.objectMapper;
+    this.jsonSchemaCache = null == builder.jsonSchemaCache ? new JsonSchemaCache() : builder.jsonSchemaCache;
+    this.metrics = null == builder.metrics ? ValidationMetrics.NONE : builder.metrics;
+    this.definitions = Collections.unmodifiableMap(new HashMap<>(builder.definitions));
+    this.maxDepth = builder.maxDepth;
+    this.maxNodes = builder.maxNodes;
+  }
+
+  private static Map<String, FieldValidator<?>> validatorMap(final FieldValidator<?>[] validators) {
+    final var map = new HashMap<String, FieldValidator<?>>(validators.length * 2);
+    for (final var validator : validators) {
+      if (null != map.put(validator.supportsType().getSimpleName(), validator)) {
+        throw new IllegalStateException("duplicate validator for type " + validator.supportsType());
+      }
+    }
+    return map;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder with the same validators, mapper, JSON schema cache and schema definitions as this engine.
+   */
+  public Builder toBuilder() {
+    final var builder = new Builder()
+      .validators(validators.values().toArray(new FieldValidator<?>[0]))
+      .objectMapper(objectMapper)
+      .jsonSchemaCache(jsonSchemaCache)
+      .metrics(metrics)
+      .maxDepth(maxDepth)
+      .maxNodes(maxNodes);
+    builder.definitions.putAll(definitions);
+    return builder;
+  }
+
+  public Map<String, FieldValidator<?>> validators() {
+    return validators;
+  }
+
+  public ObjectMapper objectMapper() {
+    return objectMapper;
+  }
+
+  public JsonSchemaCache jsonSchemaCache() {
+    return jsonSchemaCache;
+  }
+
+  public ValidationMetrics metrics() {
+    return metrics;
+  }
+
+  public Map<String, Map<String, FieldDefinition>> definitions() {
+    return definitions;
+  }
+
+  /**
+   * Loads the classes and initializes the parts used on the first validation (jackson, a compiled schema per
+   * validator, a JSON schema), so the first request doesn't pay for it. Runs when the engine is built unless
+   * {@link Builder#warmUp(boolean)} turned it off. Safe to call at any time and from any thread.
+   * <p>
+   * Every validator is called with a null and a sample value. Validators that throw are only logged, warm-up never
+   * fails because of them.
+   *
+   * @return This engine.
+   */
+  public ValidatorEngine warmUp() {
+    for (final var type : validators.keySet()) {
+      warmUp(type, null);
+      warmUp(type, WarmUp.sampleValue(type));
+    }
+    // a throwaway cache, the schema shouldn't take a place in the real one or its store
+    new JsonSchemaCache(1, 0, 1).getOrAddHandle("{\"type\":\"object\"}").validate(readTree("{}"));
+    return this;
+  }
+
+  private void warmUp(
+    final String type,
+    final Object value
+  ) {
+    final Map<String, FieldDefinition> schema = Map.of(
+      "warmUp", FieldDefinition.builder().type(type).nullable(true).build()
+    );
+    try (final var sink = ViolationSink.acquire(1)) {
+      CompiledSchema.compile(schema, validators::get).validate(Collections.singletonMap("warmUp", value), sink);
+    } catch (final RuntimeException exc) {
+      LOG.warn("warm-up of the {} validator failed: {}", type, exc.toString());
+    }
+  }
+
+  /**
+   * {@link #warmUp()} plus preloading and optional synthetic validations of the given schemas. Blocks until done, so
+   * a readiness probe can wait for it.
+   *
+   * @return What was preloaded and how long it took.
+   * @throws IllegalStateException if a schema can't be read or compiled.
+   */
+  public WarmUpReport warmUp(final WarmUp warmUp) {
+    warmUp();
+    final var report = warmUp.run(this);
+    LOG.info(
+      "warm-up took {} ms: {} stored and {} json schemas, {} map schemas, {} validations",
+      report.getTotalTime().toMillis(),
+      report.getStoredSchemas(),
+      report.getJsonSchemas(),
+      report.getMapSchemas(),
+      report.getValidations()
+    );
+    return report;
+  }
+
+  /**
+   * Compiles the schema with the validators of this engine. Compiled schemas are cached per schema instance.
+   *
+   * @throws IllegalStateException if there is no validator for a type used in the schema or no definition for a
+   *                               <code>ref</code>.
+   */
+  public CompiledSchema compile(final Map<String, FieldDefinition> schema) {
+    return compiledSchemas.computeIfAbsent(schema, this::compileOrPreloaded);
+  }
+
+  private CompiledSchema compileOrPreloaded(final Map<String, FieldDefinition> schema) {
+    if (!preloaded.isEmpty()) {
+      final var compiled = preloaded.get(schema);
+      if (null != compiled) {
+        return compiled;
+      }
+    }
+    final var compiled = CompiledSchema.compile(schema, validators::get, definitions::get, maxDepth, maxNodes);
+    final var store = jsonSchemaCache.store();
+    if (null != store) {
+      store.add(schema);
+    }
+    return compiled;
+  }
+
+  /**
+   * Compiles every JSON and MAP schema of the {@link SchemaStore} of the JSON schema cache, e.g. at boot. A MAP
+   * schema equal to a stored one then isn't compiled again on its first use. Schemas that no longer compile are
+   * skipped.
+   *
+   * @return Number of compiled schemas.
+   */
+  public int preloadStored() {
+    var compiled = jsonSchemaCache.preloadStored();
+    final var store = jsonSchemaCache.store();
+    if (null == store) {
+      return compiled;
+    }
+    for (final var schema : store.mapSchemas()) {
+      try {
+        preloaded.put(schema, CompiledSchema.compile(schema, validators::get, definitions::get, maxDepth, maxNodes));
+        compiled++;
+      } catch (final RuntimeException exc) {
+        LOG.warn("skipping stored map schema that doesn't compile: {}", exc.toString());
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * Validates all records against one schema that is resolved only once. Records are validated in parallel on the
+   * common fork join pool, use {@link BatchValidator} directly to run on a different executor.
+   */
+  public BatchResult validateAll(
+    final Map<String, FieldDefinition> schema,
+    final Iterable<? extends Map<String, Object>> records
+  ) {
+    return new BatchValidator(compile(schema)).validateAll(records);
+  }
+
+  /**
+   * @see #validateAll(Map, Iterable)
+   */
+  public BatchResult validateAll(
+    final Map<String, FieldDefinition> schema,
+    final Stream<? extends Map<String, Object>> records
+  ) {
+    return new BatchValidator(compile(schema)).validateAll(records);
+  }
+
+  /**
+   * Validates an already parsed JSON tree without converting it again.
+   *
+   * @param jsonSchema JSON schema content, compiled through the cache of this engine.
+   * @param jsonData   Data to validate.
+   * @return Validation errors, empty if the data is valid.
+   */
+  public Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final JsonNode jsonData
+  ) {
+    return schemaHandle(jsonSchema).validate(jsonData);
+  }
+
+  /**
+   * Parses raw JSON straight into a tree for validation, skipping any intermediate <code>Map</code>.
+   *
+   * @throws IllegalStateException if the data isn't valid JSON.
+   */
+  public Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final byte[] json
+  ) {
+    return validateJson(jsonSchema, readTree(json));
+  }
+
+  /**
+   * Parses raw JSON straight into a tree for validation, skipping any intermediate <code>Map</code>. The stream is
+   * read to the end but not closed.
+   *
+   * @throws IllegalStateException if the data isn't valid JSON or can't be read.
+   */
+  public Set<ValidationMessage> validateJson(
+    final String jsonSchema,
+    final InputStream json
+  ) {
+    try {
+      return validateJson(jsonSchema, objectMapper.readTree(json));
+    } catch (final IOException exc) {
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  boolean isCompiled(final Map<String, FieldDefinition> schema) {
+    return null != compiledSchemas.get(schema);
+  }
+
+  boolean isJsonSchemaCompiled(final String jsonSchema) {
+    final var known = cacheEntries.get(jsonSchema);
+    return null != known && JsonSchemaCache.isLive(known) || jsonSchemaCache.get(jsonSchema).isPresent();
+  }
+
+  boolean validateMap(
+    final Map<String, FieldDefinition> schema,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    return compile(schema).validate(mapData(data), sink);
+  }
+
+  boolean validateJsonSchema(
+    final String jsonSchema,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    final var result = schemaHandle(jsonSchema).validate(toJsonNode(data));
+    for (final var message : result) {
+      sink.at(jsonPointer(message.getPath()));
+      if (!sink.report(message.getPath(), Violation.RULE_JSON_SCHEMA, null, message.getMessage())) {
+        break;
+      }
+    }
+    return result.isEmpty();
+  }
+
+  SchemaHandle schemaHandle(final String jsonSchema) {
+    final var known = cacheEntries.get(jsonSchema);
+    if (null != known) {
+      final var handle = jsonSchemaCache.hit(known);
+      if (null != handle) {
+        return handle;
+      }
+    }
+    final var handle = jsonSchemaCache.getOrAddHandle(jsonSchema);
+    final var entry = jsonSchemaCache.entry(jsonSchema);
+    if (null != entry) {
+      cacheEntries.put(jsonSchema, entry);
+    }
+    return handle;
+  }
+
+  private JsonNode readTree(final byte[] json) {
+    try {
+      return objectMapper.readTree(json);
+    } catch (final IOException exc) {
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  private JsonNode readTree(final String json) {
+    try {
+      return objectMapper.readTree(json);
+    } catch (final IOException exc) {
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  // data fields can hold a parsed tree, raw JSON or any object jackson can convert
+  private JsonNode toJsonNode(final Object data) {
+    if (data instanceof JsonNode) {
+      return (JsonNode) data;
+    } else if (data instanceof byte[]) {
+      return readTree((byte[]) data);
+    } else if (data instanceof String) {
+      return readTree((String) data);
+    }
+    return objectMapper.valueToTree(data);
+  }
+
+  // "$.nested.list[1]" -> "/nested/list/1"
+  private static String jsonPointer(final String jsonPath) {
+    final var pointer = new StringBuilder(jsonPath.length());
+    for (var i = jsonPath.startsWith("$") ? 1 : 0; i < jsonPath.length(); i++) {
+      final var c = jsonPath.charAt(i);
+      if (c == '.' || c == '[') {
+        pointer.append('/');
+      } else if (c == '~') {
+        pointer.append("~0");
+      } else if (c == '/') {
+        pointer.append("~1");
+      } else if (c != ']') {
+        pointer.append(c);
+      }
+    }
+    return pointer.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> mapData(final Object data) {
+    if (!(data instanceof Map)) {
+      throw new IllegalStateException("data for " + ValidateType.MAP + " must be a map");
+    }
+    return (Map<String, Object>) data;
+  }
+
+  public static final class Builder {
+
+    private FieldValidator<?>[] validators = ValidateSchemaValidator.DEFAULT_FIELD_VALIDATORS;
+    private ObjectMapper objectMapper;
+    private JsonSchemaCache jsonSchemaCache;
+    private ValidationMetrics metrics;
+    private final Map<String, Map<String, FieldDefinition>> definitions = new HashMap<>();
+    private int maxDepth = CompiledSchema.DEFAULT_MAX_DEPTH;
+    private int maxNodes = CompiledSchema.DEFAULT_MAX_NODES;
+    private boolean warmUp = true;
+
+    private Builder() {
+    }
+
+    /**
+     * @param validators Replace ALL default validators if at least one is given. The defaults are in
+     *                   <code>ValidateSchemaValidator.DEFAULT_FIELD_VALIDATORS</code>.
+     */
+    public Builder validators(final FieldValidator<?>... validators) {
+      if (null != validators && validators.length > 0) {
+        this.validators = validators.clone();
+      }
+      return this;
+    }
+
+    public Builder objectMapper(final ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+      return this;
+    }
+
+    /**
+     * Adds a named schema that fields can reference with <code>ref</code>, also from within itself.
+     */
+    public Builder definition(
+      final String name,
+      final Map<String, FieldDefinition> schema
+    ) {
+      if (null == name || null == schema) {
+        throw new IllegalArgumentException("name and schema are required");
+      }
+      this.definitions.put(name, schema);
+      return this;
+    }
+
+    /**
+     * @param maxDepth Maximum nesting of referenced objects in validated data, default
+     *                 {@link CompiledSchema#DEFAULT_MAX_DEPTH}.
+     */
+    public Builder maxDepth(final int maxDepth) {
+      if (maxDepth < 1) {
+        throw new IllegalArgumentException("maxDepth must be positive");
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * @param maxNodes Maximum number of referenced objects in one validated record, default
+     *                 {@link CompiledSchema#DEFAULT_MAX_NODES}.
+     */
+    public Builder maxNodes(final int maxNodes) {
+      if (maxNodes < 1) {
+        throw new IllegalArgumentException("maxNodes must be positive");
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    public Builder jsonSchemaCache(final JsonSchemaCache jsonSchemaCache) {
+      this.jsonSchemaCache = jsonSchemaCache;
+      return this;
+    }
+
+    public Builder metrics(final ValidationMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * @param warmUp Whether {@link ValidatorEngine#warmUp()} runs when the engine is built, default true.
+     */
+    public Builder warmUp(final boolean warmUp) {
+      this.warmUp = warmUp;
+      return this;
+    }
+
+    /**
+     * @throws IllegalStateException if two validators support the same type.
+     */
+    public ValidatorEngine build() {
+      final var engine = new ValidatorEngine(this);
+      return warmUp ? engine.warmUp() : engine;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import lombok.Value;
+
+/**
+ * A single failed check. The message is only built when it's asked for.
+ */
+@Value
+public class Violation {
+
+  public static final String RULE_REQUIRED = "required";
+  public static final String RULE_TYPE = "type";
+  public static final String RULE_NOT_BLANK = "notBlank";
+  public static final String RULE_PATTERN = "pattern";
+  public static final String RULE_MIN_VALUE = "minValue";
+  public static final String RULE_MAX_VALUE = "maxValue";
+  public static final String RULE_MAX_DIGITS = "maxDigits";
+  public static final String RULE_MAX_SCALE = "maxScale";
+  public static final String RULE_MIN_ITEMS = "minItems";
+  public static final String RULE_MAX_ITEMS = "maxItems";
+  public static final String RULE_UNIQUE_ITEMS = "uniqueItems";
+  public static final String RULE_MAX_DEPTH = "maxDepth";
+  public static final String RULE_MAX_NODES = "maxNodes";
+  // reported by validators that throw, the constraint holds their exception message
+  public static final String RULE_INVALID = "invalid";
+  // reported for JSON schema validation errors, the constraint holds the message of the JSON schema validator
+  public static final String RULE_JSON_SCHEMA = "jsonSchema";
+
+  // JSON pointer to the offending value, "" for the root
+  String path;
+  String key;
+  String rule;
+  Object value;
+  Object constraint;
+
+  public String getMessage() {
+    switch (rule) {
+      case RULE_REQUIRED:
+        return "data is missing required field " + key;
+      case RULE_TYPE:
+        return value + " is not an " + constraint;
+      case RULE_NOT_BLANK:
+        return "value of " + key + " must not be blank";
+      case RULE_PATTERN:
+        return "value of " + key + " does not match pattern " + constraint;
+      case RULE_MIN_VALUE:
+        return value + " is smaller than min value of " + constraint;
+      case RULE_MAX_VALUE:
+        return value + " is bigger than max value of " + constraint;
+      case RULE_MAX_DIGITS:
+        return value + " has more than " + constraint + " digits";
+      case RULE_MAX_SCALE:
+        return value + " has more than " + constraint + " decimal places";
+      case RULE_MIN_ITEMS:
+        return key + " has " + value + " items, less than min of " + constraint;
+      case RULE_MAX_ITEMS:
+        return key + " has " + value + " items, more than max of " + constraint;
+      case RULE_UNIQUE_ITEMS:
+        return key + " contains " + value + " more than once";
+      case RULE_MAX_DEPTH:
+        return key + " is nested deeper than " + constraint + " levels";
+      case RULE_MAX_NODES:
+        return "data has more than " + constraint + " nested objects";
+      case RULE_INVALID:
+      case RULE_JSON_SCHEMA:
+        return String.valueOf(constraint);
+      default:
+        return "value of " + key + " violates " + rule + " " + constraint;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects violations reported by {@link FieldCheck}s without throwing. Violations are stored as plain references and
+ * only turned into {@link Violation} objects (and messages) when read.
+ * <p>
+ * Sinks are meant to be reused: {@link #acquire(int)} hands out a per-thread instance that goes back to the thread on
+ * {@link #close()}. A sink is not thread-safe.
+ */
+public final class ViolationSink implements AutoCloseable {
+
+  private static final int INITIAL_CAPACITY = 4;
+  // path segment of list elements, "~i" can't be part of an escaped JSON pointer (RFC 6901)
+  static final String INDEX_SEGMENT = "~i";
+  private static final ThreadLocal<ViolationSink> POOL = ThreadLocal.withInitial(() -> new ViolationSink(1, true));
+
+  private final boolean pooled;
+  private boolean inUse;
+  private int limit;
+  private int size;
+  private String path = "";
+  // indexes of the list elements currently checked, outermost first
+  private int[] indexes = new int[INITIAL_CAPACITY];
+  private int depth;
+  // set while referenced objects are validated: the running frame and the index depth it started at
+  private RefCheck.Traversal traversal;
+  private RefCheck.Frame scope;
+  private int scopeDepth;
+  private String[] paths = new String[INITIAL_CAPACITY];
+  private String[] keys = new String[INITIAL_CAPACITY];
+  private String[] rules = new String[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private Object[] constraints = new Object[INITIAL_CAPACITY];
+
+  /**
+   * @param limit Maximum number of violations to keep, checks stop once it's reached.
+   */
+  public ViolationSink(final int limit) {
+    this(limit, false);
+  }
+
+  private ViolationSink(
+    final int limit,
+    final boolean pooled
+  ) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    this.limit = limit;
+    this.pooled = pooled;
+  }
+
+  /**
+   * @param limit Maximum number of violations to keep, checks stop once it's reached.
+   * @return Empty sink, reused from the current thread if it isn't in use already.
+   */
+  public static ViolationSink acquire(final int limit) {
+    final var sink = POOL.get();
+    if (sink.inUse) {
+      return new ViolationSink(limit);
+    }
+    sink.inUse = true;
+    sink.limit = Math.max(1, limit);
+    return sink;
+  }
+
+  /**
+   * Sets the JSON pointer that following reports are attributed to. Called by the schema before each field check, so
+   * checks themselves only need to know their key.
+   */
+  public void at(final String path) {
+    this.path = path;
+  }
+
+  /**
+   * Starts checking the elements of a list. Until {@link #exitList()} every {@link #INDEX_SEGMENT} in reported paths
+   * is replaced with the element index set by {@link #index(int)}, nested lists from the outside in. Paths are only
+   * resolved for reported violations.
+   */
+  void enterList() {
+    if (depth == indexes.length) {
+      indexes = Arrays.copyOf(indexes, depth * 2);
+    }
+    indexes[depth++] = 0;
+  }
+
+  void index(final int index) {
+    indexes[depth - 1] = index;
+  }
+
+  void exitList() {
+    depth--;
+  }
+
+  /**
+   * Reports a violation at the current path.
+   *
+   * @return false if the limit is reached and checking should stop.
+   */
+  public boolean report(
+    final String key,
+    final String rule,
+    final Object value,
+    final Object constraint
+  ) {
+    if (size < limit) {
+      if (size == keys.length) {
+        final var capacity = Math.min(limit, size * 2);
+        paths = Arrays.copyOf(paths, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        rules = Arrays.copyOf(rules, capacity);
+        values = Arrays.copyOf(values, capacity);
+        constraints = Arrays.copyOf(constraints, capacity);
+      }
+      paths[size] = depth == 0 && null == scope ? path : resolve(path);
+      keys[size] = key;
+      rules[size] = rule;
+      values[size] = value;
+      constraints[size] = constraint;
+      size++;
+    }
+    return size < limit;
+  }
+
+  private String resolve(final String path) {
+    final var local = depth == scopeDepth ? path : resolve(path, indexes, scopeDepth, depth);
+    return null == scope ? local : scope.path() + local;
+  }
+
+  // replaces the index segments of the path with indexes[from, to)
+  static String resolve(
+    final String path,
+    final int[] indexes,
+    final int from,
+    final int to
+  ) {
+    var start = path.indexOf(INDEX_SEGMENT);
+    if (start < 0) {
+      return path;
+    }
+    final var resolved = new StringBuilder(path.length() + 8);
+    var end = 0;
+    for (var level = from; start >= 0 && level < to; level++) {
+      resolved.append(path, end, start).append(indexes[level]);
+      end = start + INDEX_SEGMENT.length();
+      start = path.indexOf(INDEX_SEGMENT, end);
+    }
+    return resolved.append(path, end, path.length()).toString();
+  }
+
+  String path() {
+    return path;
+  }
+
+  // indexes of the lists entered in the running frame
+  int[] scopeIndexes() {
+    return depth == scopeDepth ? null : Arrays.copyOfRange(indexes, scopeDepth, depth);
+  }
+
+  RefCheck.Traversal traversal() {
+    return traversal;
+  }
+
+  void traversal(final RefCheck.Traversal traversal) {
+    this.traversal = traversal;
+  }
+
+  RefCheck.Frame scope() {
+    return scope;
+  }
+
+  /**
+   * Attributes following reports to a referenced object, paths are relative to the frame from now on.
+   */
+  void scope(final RefCheck.Frame frame) {
+    this.scope = frame;
+    this.scopeDepth = null == frame ? 0 : depth;
+  }
+
+  public boolean isFull() {
+    return size >= limit;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Violation get(final int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return new Violation(paths[index], keys[index], rules[index], values[index], constraints[index]);
+  }
+
+  public List<Violation> violations() {
+    final var violations = new ArrayList<Violation>(size);
+    for (var i = 0; i < size; i++) {
+      violations.add(get(i));
+    }
+    return violations;
+  }
+
+  /**
+   * Removes all violations but keeps the allocated storage.
+   */
+  public void clear() {
+    Arrays.fill(values, 0, size, null);
+    Arrays.fill(constraints, 0, size, null);
+    size = 0;
+    path = "";
+    depth = 0;
+    traversal = null;
+    scope = null;
+    scopeDepth = 0;
+  }
+
+  /**
+   * Clears the sink and hands a pooled sink back to its thread.
+   */
+  @Override
+  public void close() {
+    clear();
+    if (pooled) {
+      inUse = false;
+    }
+  }
+
+  /**
+   * Adapter for callers that expect the throwing {@link FieldValidator#validate(String, Object, FieldDefinition)}
+   * contract.
+   *
+   * @throws IllegalStateException with the message of the first violation.
+   */
+  public static void throwIfInvalid(
+    final FieldCheck check,
+    final String key,
+    final Object data
+  ) {
+    try (final var sink = acquire(1)) {
+      if (!check.check(key, data, sink)) {
+        throw new IllegalStateException(sink.isEmpty() ? "invalid value of " + key : sink.get(0).getMessage());
+      }
+    }
+  }
+}
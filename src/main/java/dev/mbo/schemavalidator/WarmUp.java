@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What {@link ValidatorEngine#warmUp(WarmUp)} preloads at boot besides the schemas of a {@link SchemaStore}: JSON
+ * schemas from directories (every <code>*.json</code> file), classpath resources or strings and
+ * <code>FieldDefinition</code> maps. MAP schemas are compiled per instance, so pass the same map instances that are
+ * validated later.
+ * <p>
+ * With <code>syntheticValidations</code> every schema is validated that many times against generated data (an empty
+ * object and, for MAP schemas, a record with a value of each field type) so the JIT compiles the validation paths
+ * before the first request.
+ */
+@Value
+@Builder
+public class WarmUp {
+
+  @Singular
+  List<Path> jsonSchemaDirectories;
+  @Singular
+  List<String> jsonSchemaResources;
+  @Singular
+  List<String> jsonSchemas;
+  @Singular
+  List<Map<String, FieldDefinition>> mapSchemas;
+  int syntheticValidations;
+
+  WarmUpReport run(final ValidatorEngine engine) {
+    final var start = System.nanoTime();
+    final var stored = engine.preloadStored();
+    final var jsonSchemaContents = loadJsonSchemas();
+    final var handles = new ArrayList<SchemaHandle>(jsonSchemaContents.size());
+    for (final var jsonSchema : jsonSchemaContents) {
+      handles.add(engine.jsonSchemaCache().getOrAddHandle(jsonSchema));
+    }
+    final var compiled = new ArrayList<CompiledSchema>(mapSchemas.size());
+    for (final var mapSchema : mapSchemas) {
+      compiled.add(engine.compile(mapSchema));
+    }
+    final var loaded = System.nanoTime();
+
+    var validations = 0L;
+    if (syntheticValidations > 0) {
+      final var emptyObject = engine.objectMapper().createObjectNode();
+      final var samples = new ArrayList<Map<String, Object>>(compiled.size());
+      for (final var schema : compiled) {
+        samples.add(sample(schema));
+      }
+      final var sink = new ViolationSink(Integer.MAX_VALUE);
+      for (var i = 0; i < syntheticValidations; i++) {
+        for (final var handle : handles) {
+          handle.validate(emptyObject);
+          validations++;
+        }
+        for (var s = 0; s < compiled.size(); s++) {
+          sink.clear();
+          compiled.get(s).validate(samples.get(s), sink);
+          sink.clear();
+          compiled.get(s).validate(Map.of(), sink);
+          validations += 2;
+        }
+      }
+    }
+    final var end = System.nanoTime();
+    return new WarmUpReport(stored, handles.size(), compiled.size(), validations, loaded - start, end - loaded);
+  }
+
+  private List<String> loadJsonSchemas() {
+    final var contents = new ArrayList<>(jsonSchemas);
+    for (final var directory : jsonSchemaDirectories) {
+      try (final var files = Files.newDirectoryStream(directory, "*.json")) {
+        final var sorted = new ArrayList<Path>();
+        files.forEach(sorted::add);
+        sorted.sort(null);
+        for (final var file : sorted) {
+          contents.add(Files.readString(file, StandardCharsets.UTF_8));
+        }
+      } catch (final IOException exc) {
+        throw new IllegalStateException("failed to read json schemas from " + directory, exc);
+      }
+    }
+    final var classLoader = null == Thread.currentThread().getContextClassLoader()
+      ? WarmUp.class.getClassLoader()
+      : Thread.currentThread().getContextClassLoader();
+    for (final var resource : jsonSchemaResources) {
+      try (final InputStream in = classLoader.getResourceAsStream(resource)) {
+        if (null == in) {
+          throw new IllegalStateException("json schema resource not found: " + resource);
+        }
+        contents.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      } catch (final IOException exc) {
+        throw new IllegalStateException("failed to read json schema resource " + resource, exc);
+      }
+    }
+    return contents;
+  }
+
+  // a plausible value per field so the type checks of the validators run, not only the required checks
+  private static Map<String, Object> sample(final CompiledSchema schema) {
+    final var sample = new HashMap<String, Object>(schema.size() * 2);
+    for (var i = 0; i < schema.size(); i++) {
+      final var field = schema.field(i);
+      sample.put(field.key(), null == field.nested() ? sampleValue(field.type()) : sample(field.nested()));
+    }
+    return sample;
+  }
+
+  // null for types without a sample
+  static Object sampleValue(final String type) {
+    if (String.class.getSimpleName().equals(type)) {
+      return "warmUp";
+    } else if (Integer.class.getSimpleName().equals(type)) {
+      return 0;
+    } else if (Long.class.getSimpleName().equals(type)) {
+      return 0L;
+    } else if (Double.class.getSimpleName().equals(type)) {
+      return 0.0;
+    } else if (BigDecimal.class.getSimpleName().equals(type)) {
+      return "0";
+    } else if (List.class.getSimpleName().equals(type)) {
+      return List.of();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * What {@link ValidatorEngine#warmUp(WarmUp)} did and how long it took.
+ */
+@Value
+public class WarmUpReport {
+
+  // JSON and MAP schemas compiled from the SchemaStore of the cache
+  int storedSchemas;
+  int jsonSchemas;
+  int mapSchemas;
+  long validations;
+  // reading and compiling the schemas
+  long loadNanos;
+  long validationNanos;
+
+  public Duration getLoadTime() {
+    return Duration.ofNanos(loadNanos);
+  }
+
+  public Duration getValidationTime() {
+    return Duration.ofNanos(validationNanos);
+  }
+
+  public Duration getTotalTime() {
+    return Duration.ofNanos(loadNanos + validationNanos);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache keyed by object identity. Keys are only weakly referenced so entries disappear together with the
+ * objects they were computed for.
+ */
+class WeakIdentityCache<K, V> {
+
+  private final ConcurrentHashMap<IdentityKey<K>, V> entries = new ConcurrentHashMap<>();
+  private final ReferenceQueue<K> collected = new ReferenceQueue<>();
+
+  V computeIfAbsent(
+    final K key,
+    final Function<? super K, ? extends V> mappingFunction
+  ) {
+    final var lookupKey = new IdentityKey<>(key, null);
+    final var existing = entries.get(lookupKey);
+    if (null != existing) {
+      return existing;
+    }
+    expungeCollected();
+    return entries.computeIfAbsent(new IdentityKey<>(key, collected), k -> mappingFunction.apply(key));
+  }
+
+  void put(
+    final K key,
+    final V value
+  ) {
+    expungeCollected();
+    entries.put(new IdentityKey<>(key, collected), value);
+  }
+
+  // null if there is no entry for the key
+  V get(final K key) {
+    return entries.get(new IdentityKey<>(key, null));
+  }
+
+  int size() {
+    expungeCollected();
+    return entries.size();
+  }
+
+  private void expungeCollected() {
+    Object ref;
+    while (null != (ref = collected.poll())) {
+      entries.remove(ref);
+    }
+  }
+
+  private static final class IdentityKey<K> extends WeakReference<K> {
+
+    private final int hash;
+
+    IdentityKey(
+      final K referent,
+      final ReferenceQueue<K> queue
+    ) {
+      super(referent, queue);
+      this.hash = System.identityHashCode(referent);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof IdentityKey)) {
+        return false;
+      }
+      final var referent = get();
+      return null != referent && referent == ((IdentityKey<?>) o).get();
+    }
+  }
+}
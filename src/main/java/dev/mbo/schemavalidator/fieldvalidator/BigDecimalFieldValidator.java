@@ -16,51 +16,269 @@
 
 package dev.mbo.schemavalidator.fieldvalidator;
 
+import dev.mbo.schemavalidator.FieldCheck;
 import dev.mbo.schemavalidator.FieldDefinition;
-import dev.mbo.schemavalidator.FieldValidator;
+import dev.mbo.schemavalidator.ReportingFieldValidator;
+import dev.mbo.schemavalidator.Violation;
+import dev.mbo.schemavalidator.ViolationSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 
-public class BigDecimalFieldValidator implements FieldValidator<BigDecimal> {
+public class BigDecimalFieldValidator implements ReportingFieldValidator<BigDecimal> {
 
   private static final Logger LOG = LoggerFactory.getLogger(BigDecimalFieldValidator.class);
+  // the Double warning is logged once, not for every validated value
+  private static volatile boolean doubleWarned = false;
 
   @Override
-  public void validate(
-    final String key,
-    final Object data,
-    final FieldDefinition fieldDefinition
-  ) {
-    LOG.debug("validate {}::{}: {}", key, fieldDefinition.getType(), data);
-    if (fieldDefinition.getNullable() == Boolean.TRUE && null == data) {
-      return;
+  public FieldCheck bind(final FieldDefinition fieldDefinition) {
+    return new DecimalCheck(fieldDefinition);
+  }
+
+  @Override
+  public Class<BigDecimal> supportsType() {
+    return BigDecimal.class;
+  }
+
+  /**
+   * Bounds are built once per field definition. Plain decimal strings and integral numbers are checked against long
+   * bounds without creating a BigDecimal, everything else (exponents, more than 18 integer digits, bounds with
+   * fractions, doubles) is parsed.
+   */
+  private final class DecimalCheck implements FieldCheck {
+
+    private static final int FALLBACK = -1;
+    private static final int VALID = 0;
+    private static final int TOO_SMALL = 1;
+    private static final int TOO_BIG = 2;
+    private static final int TOO_MANY_DIGITS = 3;
+    private static final int SCALE_TOO_BIG = 4;
+    // integer parts with more digits might not fit into a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final boolean nullable;
+    private final Number minConstraint;
+    private final Number maxConstraint;
+    private final Integer maxDigitsConstraint;
+    private final Integer maxScaleConstraint;
+    private final BigDecimal minBound;
+    private final BigDecimal maxBound;
+    private final int maxDigits;
+    private final int maxScale;
+    // only with integral bounds
+    private final boolean lexical;
+    private final long minLong;
+    private final long maxLong;
+
+    private DecimalCheck(final FieldDefinition fieldDefinition) {
+      nullable = fieldDefinition.getNullable() == Boolean.TRUE;
+      final Double minDouble = fieldDefinition.getMinDoubleValue();
+      final Double maxDouble = fieldDefinition.getMaxDoubleValue();
+      minConstraint = null != minDouble ? minDouble : (Number) fieldDefinition.getMinValue();
+      maxConstraint = null != maxDouble ? maxDouble : (Number) fieldDefinition.getMaxValue();
+      minBound = toBigDecimal(minConstraint);
+      maxBound = toBigDecimal(maxConstraint);
+      maxDigitsConstraint = fieldDefinition.getMaxDigits();
+      maxScaleConstraint = fieldDefinition.getMaxScale();
+      maxDigits = null == maxDigitsConstraint ? Integer.MAX_VALUE : maxDigitsConstraint;
+      maxScale = null == maxScaleConstraint ? Integer.MAX_VALUE : maxScaleConstraint;
+      lexical = null == minDouble && null == maxDouble;
+      minLong = null == minConstraint ? Long.MIN_VALUE : minConstraint.longValue();
+      maxLong = null == maxConstraint ? Long.MAX_VALUE : maxConstraint.longValue();
     }
-    final BigDecimal value;
-    if (data instanceof String) {
-      value = new BigDecimal((String) data);
-    } else if (data instanceof Double) {
-      LOG.warn("you should use string representation for getting BigDecimal from Double");
-      value = BigDecimal.valueOf((Double) data);
-    } else if (data instanceof Integer) {
-      value = BigDecimal.valueOf((Integer) data);
-    } else if (data instanceof Long) {
-      value = BigDecimal.valueOf((Long) data);
-    } else {
-      throw new IllegalStateException(data + " is not parsable to " + supportsType());
+
+    private BigDecimal toBigDecimal(final Number constraint) {
+      if (null == constraint) {
+        return null;
+      }
+      return constraint instanceof Double
+        ? BigDecimal.valueOf(constraint.doubleValue())
+        : BigDecimal.valueOf(constraint.longValue());
     }
 
-    if (fieldDefinition.getMinValue() != null && value.compareTo(BigDecimal.valueOf(fieldDefinition.getMinValue())) < 0) {
-      throw new IllegalStateException(value + " is smaller than min value of " + fieldDefinition.getMinValue());
+    @Override
+    public boolean check(
+      final String key,
+      final Object data,
+      final ViolationSink sink
+    ) {
+      if (nullable && null == data) {
+        return true;
+      }
+      if (lexical) {
+        final int result;
+        if (data instanceof String) {
+          result = checkPlain((String) data);
+        } else if (data instanceof Integer || data instanceof Long) {
+          result = checkLong(((Number) data).longValue());
+        } else {
+          result = FALLBACK;
+        }
+        if (result != FALLBACK) {
+          return report(result, key, data, sink);
+        }
+      }
+      return checkParsed(key, data, sink);
     }
-    if (fieldDefinition.getMaxValue() != null && value.compareTo(BigDecimal.valueOf(fieldDefinition.getMaxValue())) > 0) {
-      throw new IllegalStateException(value + " is bigger than max value of" + fieldDefinition.getMaxValue());
+
+    private boolean checkParsed(
+      final String key,
+      final Object data,
+      final ViolationSink sink
+    ) {
+      final BigDecimal value;
+      if (data instanceof String) {
+        try {
+          value = new BigDecimal((String) data);
+        } catch (final NumberFormatException exc) {
+          sink.report(key, Violation.RULE_TYPE, data, supportsType());
+          return false;
+        }
+      } else if (data instanceof Double) {
+        if (!doubleWarned) {
+          doubleWarned = true;
+          LOG.warn("you should use string representation for getting BigDecimal from Double");
+        }
+        value = BigDecimal.valueOf((Double) data);
+      } else if (data instanceof Integer) {
+        value = BigDecimal.valueOf((Integer) data);
+      } else if (data instanceof Long) {
+        value = BigDecimal.valueOf((Long) data);
+      } else {
+        sink.report(key, Violation.RULE_TYPE, data, supportsType());
+        return false;
+      }
+
+      if (minBound != null && value.compareTo(minBound) < 0) {
+        return report(TOO_SMALL, key, value, sink);
+      }
+      if (maxBound != null && value.compareTo(maxBound) > 0) {
+        return report(TOO_BIG, key, value, sink);
+      }
+      if (value.precision() > maxDigits) {
+        return report(TOO_MANY_DIGITS, key, value, sink);
+      }
+      if (value.scale() > maxScale) {
+        return report(SCALE_TOO_BIG, key, value, sink);
+      }
+      return true;
     }
-  }
 
-  @Override
-  public Class<BigDecimal> supportsType() {
-    return BigDecimal.class;
+    private boolean report(
+      final int result,
+      final String key,
+      final Object value,
+      final ViolationSink sink
+    ) {
+      switch (result) {
+        case TOO_SMALL:
+          sink.report(key, Violation.RULE_MIN_VALUE, value, minConstraint);
+          return false;
+        case TOO_BIG:
+          sink.report(key, Violation.RULE_MAX_VALUE, value, maxConstraint);
+          return false;
+        case TOO_MANY_DIGITS:
+          sink.report(key, Violation.RULE_MAX_DIGITS, value, maxDigitsConstraint);
+          return false;
+        case SCALE_TOO_BIG:
+          sink.report(key, Violation.RULE_MAX_SCALE, value, maxScaleConstraint);
+          return false;
+        default:
+          return true;
+      }
+    }
+
+    private int checkLong(final long value) {
+      if (value < minLong) {
+        return TOO_SMALL;
+      }
+      if (value > maxLong) {
+        return TOO_BIG;
+      }
+      if (maxDigits < 19 && digits(value) > maxDigits) {
+        return TOO_MANY_DIGITS;
+      }
+      return VALID;
+    }
+
+    private int digits(final long value) {
+      var digits = 1;
+      for (var rest = value / 10; rest != 0; rest /= 10) {
+        digits++;
+      }
+      return digits;
+    }
+
+    // "-2549.50": the integer part is compared to the bounds, a non-zero fraction only matters if it equals one of them
+    private int checkPlain(final String str) {
+      final var length = str.length();
+      var i = 0;
+      var negative = false;
+      if (length > 0 && (str.charAt(0) == '-' || str.charAt(0) == '+')) {
+        negative = str.charAt(0) == '-';
+        i = 1;
+      }
+      final var integerStart = i;
+      var integer = 0L;
+      // digits of the unscaled value without leading zeros, i.e. the precision
+      var significant = 0;
+      for (; i < length; i++) {
+        final var c = str.charAt(i);
+        if (c < '0' || c > '9') {
+          break;
+        }
+        if (significant > 0 || c != '0') {
+          if (++significant > MAX_LONG_DIGITS) {
+            return FALLBACK;
+          }
+          integer = integer * 10 + (c - '0');
+        }
+      }
+      if (i == integerStart) {
+        return FALLBACK;
+      }
+      var scale = 0;
+      var hasFraction = false;
+      if (i < length) {
+        if (str.charAt(i) != '.') {
+          return FALLBACK;
+        }
+        final var fractionStart = ++i;
+        for (; i < length; i++) {
+          final var c = str.charAt(i);
+          if (c < '0' || c > '9') {
+            return FALLBACK;
+          }
+          if (c != '0') {
+            hasFraction = true;
+          }
+          if (significant > 0 || c != '0') {
+            significant++;
+          }
+        }
+        scale = i - fractionStart;
+        if (scale == 0) {
+          return FALLBACK;
+        }
+      }
+
+      final var value = negative ? -integer : integer;
+      // the decimal lies in [value, value + 1) if positive and in (value - 1, value] if negative
+      if (value < minLong || (negative && hasFraction && value == minLong)) {
+        return TOO_SMALL;
+      }
+      if (value > maxLong || (!negative && hasFraction && value == maxLong)) {
+        return TOO_BIG;
+      }
+      if (Math.max(1, significant) > maxDigits) {
+        return TOO_MANY_DIGITS;
+      }
+      if (scale > maxScale) {
+        return SCALE_TOO_BIG;
+      }
+      return VALID;
+    }
   }
 }
@@ -16,36 +16,32 @@
 
 package dev.mbo.schemavalidator.fieldvalidator;
 
+import dev.mbo.schemavalidator.FieldCheck;
 import dev.mbo.schemavalidator.FieldDefinition;
-import dev.mbo.schemavalidator.FieldValidator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import dev.mbo.schemavalidator.NumericWidening;
+import dev.mbo.schemavalidator.ReportingFieldValidator;
+import dev.mbo.schemavalidator.Violation;
 
-public class LongFieldValidator implements FieldValidator<Long> {
-
-  private static final Logger LOG = LoggerFactory.getLogger(LongFieldValidator.class);
+public class LongFieldValidator implements ReportingFieldValidator<Long> {
 
   @Override
-  public void validate(
-    final String key,
-    final Object data,
-    final FieldDefinition fieldDefinition
-  ) {
-    LOG.debug("validate {}::{}: {}", key, fieldDefinition.getType(), data);
-    if(fieldDefinition.getNullable() == Boolean.TRUE && null == data) {
-      return;
-    }
-    if (data instanceof Long) {
-      final var value = (Long) data;
-      if (fieldDefinition.getMinValue() != null && value < fieldDefinition.getMinValue()) {
-        throw new IllegalStateException(value + " is smaller than min value of " + fieldDefinition.getMinValue());
+  public FieldCheck bind(final FieldDefinition fieldDefinition) {
+    final var nullable = fieldDefinition.getNullable() == Boolean.TRUE;
+    final var lossless = fieldDefinition.getWidening() == NumericWidening.LOSSLESS;
+    final var bounds = NumericBounds.of(fieldDefinition);
+    return (key, data, sink) -> {
+      if (nullable && null == data) {
+        return true;
+      }
+      if (data instanceof Long) {
+        return bounds.check(key, (long) (Long) data, data, sink);
       }
-      if (fieldDefinition.getMaxValue() != null && value > fieldDefinition.getMaxValue()) {
-        throw new IllegalStateException(value + " is bigger than max value of" + fieldDefinition.getMaxValue());
+      if (lossless && NumericBounds.isIntegral(data)) {
+        return bounds.check(key, ((Number) data).longValue(), data, sink);
       }
-    } else {
-      throw new IllegalStateException(data + " is not an " + supportsType());
-    }
+      sink.report(key, Violation.RULE_TYPE, data, supportsType());
+      return false;
+    };
   }
 
   @Override
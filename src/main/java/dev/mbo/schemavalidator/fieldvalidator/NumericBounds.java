@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.Violation;
+import dev.mbo.schemavalidator.ViolationSink;
+
+/**
+ * Min/max of a field lowered to primitive bounds once per field definition. Missing bounds are the extremes of the
+ * type so a check is always two primitive comparisons. The configured values are kept only for messages.
+ * <p>
+ * Public for the bulk element scans of <code>List</code> fields: {@link #of(FieldDefinition)} and the
+ * <code>contains</code> tests. Reporting a violation stays with the field validators of this package.
+ */
+public final class NumericBounds {
+
+  // largest range of longs a double represents exactly
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  private final Number minConstraint;
+  private final Number maxConstraint;
+  private final long minLong;
+  private final long maxLong;
+  private final double minDouble;
+  private final double maxDouble;
+
+  private NumericBounds(
+    final Number minConstraint,
+    final Number maxConstraint
+  ) {
+    this.minConstraint = minConstraint;
+    this.maxConstraint = maxConstraint;
+    // integral values are compared to double bounds rounded inwards, e.g. min 0.5 -> 1
+    this.minLong = null == minConstraint ? Long.MIN_VALUE
+      : minConstraint instanceof Double ? (long) Math.ceil(minConstraint.doubleValue()) : minConstraint.longValue();
+    this.maxLong = null == maxConstraint ? Long.MAX_VALUE
+      : maxConstraint instanceof Double ? (long) Math.floor(maxConstraint.doubleValue()) : maxConstraint.longValue();
+    this.minDouble = null == minConstraint ? Double.NEGATIVE_INFINITY : minConstraint.doubleValue();
+    this.maxDouble = null == maxConstraint ? Double.POSITIVE_INFINITY : maxConstraint.doubleValue();
+  }
+
+  /**
+   * Lowers the bounds of a field definition. Double bounds take precedence over long bounds.
+   */
+  public static NumericBounds of(final FieldDefinition fieldDefinition) {
+    return new NumericBounds(
+      firstNonNull(fieldDefinition.getMinDoubleValue(), fieldDefinition.getMinValue()),
+      firstNonNull(fieldDefinition.getMaxDoubleValue(), fieldDefinition.getMaxValue())
+    );
+  }
+
+  // a conditional expression would unbox a Double/Long mix
+  private static Number firstNonNull(
+    final Number first,
+    final Number second
+  ) {
+    return null != first ? first : second;
+  }
+
+  boolean check(
+    final String key,
+    final long value,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    if (value < minLong) {
+      sink.report(key, Violation.RULE_MIN_VALUE, data, minConstraint);
+      return false;
+    }
+    if (value > maxLong) {
+      sink.report(key, Violation.RULE_MAX_VALUE, data, maxConstraint);
+      return false;
+    }
+    return true;
+  }
+
+  boolean check(
+    final String key,
+    final double value,
+    final Object data,
+    final ViolationSink sink
+  ) {
+    if (value < minDouble) {
+      sink.report(key, Violation.RULE_MIN_VALUE, data, minConstraint);
+      return false;
+    }
+    if (value > maxDouble) {
+      sink.report(key, Violation.RULE_MAX_VALUE, data, maxConstraint);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return Whether an integral value is within the bounds, without reporting anything.
+   */
+  public boolean contains(final long value) {
+    return value >= minLong && value <= maxLong;
+  }
+
+  /**
+   * @return Whether a value is within the bounds, without reporting anything. NaN is contained, like the check lets it
+   * pass.
+   */
+  public boolean contains(final double value) {
+    return !(value < minDouble) && !(value > maxDouble);
+  }
+
+  static boolean isIntegral(final Object data) {
+    return data instanceof Integer || data instanceof Long || data instanceof Short || data instanceof Byte;
+  }
+
+  static boolean isExactDouble(final long value) {
+    return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE;
+  }
+}
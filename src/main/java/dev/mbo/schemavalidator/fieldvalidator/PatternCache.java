@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled {@link StringMatcher}s by regular expression. Used wherever a pattern is only known at
+ * validation time so it isn't compiled again for every value.
+ */
+public final class PatternCache {
+
+  private static final PatternCache SHARED = new PatternCache(1024);
+
+  private final ConcurrentHashMap<String, StringMatcher> matchers;
+  private final int maxSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public PatternCache(final int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.maxSize = maxSize;
+    this.matchers = new ConcurrentHashMap<>(Math.min(maxSize, 256));
+  }
+
+  public static PatternCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * @param regex Regular expression.
+   * @return Cached matcher for the expression, compiled on first use.
+   * @throws java.util.regex.PatternSyntaxException if the expression is invalid.
+   */
+  public StringMatcher get(final String regex) {
+    final var cached = matchers.get(regex);
+    if (null != cached) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    final var matcher = StringMatchers.compile(regex);
+    if (matchers.size() >= maxSize) {
+      // no recency tracking: patterns come from schemas so the working set is small and eviction is rare
+      final var it = matchers.keySet().iterator();
+      if (it.hasNext()) {
+        matchers.remove(it.next());
+      }
+    }
+    final var existing = matchers.putIfAbsent(regex, matcher);
+    return null != existing ? existing : matcher;
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public int size() {
+    return matchers.size();
+  }
+}
@@ -16,36 +16,38 @@
 
 package dev.mbo.schemavalidator.fieldvalidator;
 
+import dev.mbo.schemavalidator.FieldCheck;
 import dev.mbo.schemavalidator.FieldDefinition;
-import dev.mbo.schemavalidator.FieldValidator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import dev.mbo.schemavalidator.ReportingFieldValidator;
+import dev.mbo.schemavalidator.Violation;
 
-public class StringFieldValidator implements FieldValidator<String> {
-
-  private static final Logger LOG = LoggerFactory.getLogger(StringFieldValidator.class);
+public class StringFieldValidator implements ReportingFieldValidator<String> {
 
   @Override
-  public void validate(
-    final String key,
-    final Object data,
-    final FieldDefinition fieldDefinition
-  ) {
-    LOG.debug("validate {}::{}: {}", key, fieldDefinition.getType(), data);
-    if(fieldDefinition.getNullable() == Boolean.TRUE && null == data) {
-      return;
-    }
-    if (data instanceof String) {
+  public FieldCheck bind(final FieldDefinition fieldDefinition) {
+    final var nullable = fieldDefinition.getNullable() == Boolean.TRUE;
+    final var notBlank = fieldDefinition.getNotBlank() != null;
+    final var pattern = fieldDefinition.getPattern();
+    final var matcher = null == pattern ? null : PatternCache.shared().get(pattern);
+    return (key, data, sink) -> {
+      if (nullable && null == data) {
+        return true;
+      }
+      if (!(data instanceof String)) {
+        sink.report(key, Violation.RULE_TYPE, data, supportsType());
+        return false;
+      }
       final var value = (String) data;
-      if (fieldDefinition.getNotBlank() != null && value.isBlank()) {
-        throw new IllegalStateException("value of " + key + " must not be blank");
+      if (notBlank && value.isBlank()) {
+        sink.report(key, Violation.RULE_NOT_BLANK, value, true);
+        return false;
       }
-      if (fieldDefinition.getPattern() != null && !value.matches(fieldDefinition.getPattern())) {
-        throw new IllegalStateException(value + "value of " + key + " doesn not match pattern " + fieldDefinition.getPattern());
+      if (matcher != null && !matcher.matches(value)) {
+        sink.report(key, Violation.RULE_PATTERN, value, pattern);
+        return false;
       }
-    } else {
-      throw new IllegalStateException(data + " is not an " + supportsType());
-    }
+      return true;
+    };
   }
 
   @Override
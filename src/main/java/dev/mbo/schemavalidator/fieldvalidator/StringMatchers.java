@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates {@link StringMatcher}s with the same result as <code>value.matches(regex)</code>. Patterns of a few common
+ * simple shapes are answered without the regex engine:
+ * <ul>
+ *   <li>literals: <code>abc</code></li>
+ *   <li>literal prefixes: <code>abc.*</code></li>
+ *   <li>ASCII character classes: <code>[a-z0-9_]+</code>, <code>\d{4}</code>, <code>[A-Z]{2,3}</code></li>
+ *   <li>length bounds: <code>.{1,20}</code></li>
+ * </ul>
+ * Everything else falls back to a compiled {@link Pattern}.
+ */
+public final class StringMatchers {
+
+  private static final String META_CHARS = "\\[](){}.*+?^$|";
+
+  /**
+   * @param regex Regular expression to compile.
+   * @return Matcher for the expression.
+   * @throws java.util.regex.PatternSyntaxException if the expression is invalid.
+   */
+  public static StringMatcher compile(final String regex) {
+    final var pattern = Pattern.compile(regex);
+    final var fast = fastMatcher(regex);
+    return null != fast ? fast : new RegexMatcher(pattern);
+  }
+
+  // null if the pattern doesn't have one of the supported simple shapes
+  static StringMatcher fastMatcher(final String regex) {
+    var body = regex;
+    if (body.startsWith("^")) {
+      body = body.substring(1);
+    }
+    if (body.endsWith("$") && !body.endsWith("\\$")) {
+      body = body.substring(0, body.length() - 1);
+    }
+    if (body.isEmpty()) {
+      return null;
+    }
+    if (isLiteral(body)) {
+      final var literal = body;
+      return literal::equals;
+    }
+    if (body.endsWith(".*") && isLiteral(body.substring(0, body.length() - 2))) {
+      final var prefix = body.substring(0, body.length() - 2);
+      return value -> value.startsWith(prefix) && !containsLineTerminator(value, prefix.length());
+    }
+    return repeatedClassMatcher(body);
+  }
+
+  private static StringMatcher repeatedClassMatcher(final String body) {
+    final boolean[] members;
+    final int quantifierStart;
+    if (body.startsWith(".")) {
+      members = null;
+      quantifierStart = 1;
+    } else if (body.startsWith("\\d")) {
+      members = asciiClass("0-9");
+      quantifierStart = 2;
+    } else if (body.startsWith("\\w")) {
+      members = asciiClass("a-zA-Z0-9_");
+      quantifierStart = 2;
+    } else if (body.startsWith("[")) {
+      final var end = body.indexOf(']', 2);
+      if (end < 0) {
+        return null;
+      }
+      members = asciiClass(body.substring(1, end));
+      if (null == members) {
+        return null;
+      }
+      quantifierStart = end + 1;
+    } else {
+      return null;
+    }
+    final var bounds = quantifier(body.substring(quantifierStart));
+    if (null == bounds) {
+      return null;
+    }
+    final var min = bounds[0];
+    final var max = bounds[1];
+    if (null == members) {
+      return value -> {
+        final var length = value.codePointCount(0, value.length());
+        return length >= min && length <= max && !containsLineTerminator(value, 0);
+      };
+    }
+    // only ASCII members, so every matching string has as many chars as code points
+    return value -> {
+      final var length = value.length();
+      if (length < min || length > max) {
+        return false;
+      }
+      for (var i = 0; i < length; i++) {
+        final var c = value.charAt(i);
+        if (c >= members.length || !members[c]) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  // {min, max} for +, *, ?, {n}, {n,} and {n,m}; null for anything else
+  private static int[] quantifier(final String quantifier) {
+    switch (quantifier) {
+      case "":
+        return new int[]{1, 1};
+      case "+":
+        return new int[]{1, Integer.MAX_VALUE};
+      case "*":
+        return new int[]{0, Integer.MAX_VALUE};
+      case "?":
+        return new int[]{0, 1};
+      default:
+        break;
+    }
+    if (!quantifier.startsWith("{") || !quantifier.endsWith("}")) {
+      return null;
+    }
+    final var inner = quantifier.substring(1, quantifier.length() - 1);
+    final var comma = inner.indexOf(',');
+    try {
+      if (comma < 0) {
+        final var n = Integer.parseInt(inner);
+        return new int[]{n, n};
+      }
+      final var min = Integer.parseInt(inner.substring(0, comma));
+      final var maxStr = inner.substring(comma + 1);
+      final var max = maxStr.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(maxStr);
+      return min <= max ? new int[]{min, max} : null;
+    } catch (final NumberFormatException exc) {
+      return null;
+    }
+  }
+
+  // members of a bracket expression without negation, nesting, escapes or non-ASCII chars; null if unsupported
+  private static boolean[] asciiClass(final String spec) {
+    if (spec.isEmpty() || spec.startsWith("^")) {
+      return null;
+    }
+    final var members = new boolean[128];
+    var i = 0;
+    while (i < spec.length()) {
+      final var c = spec.charAt(i);
+      if (c >= 128 || c == '\\' || c == '[' || c == ']' || c == '&') {
+        return null;
+      }
+      if (i + 2 < spec.length() && spec.charAt(i + 1) == '-') {
+        final var to = spec.charAt(i + 2);
+        if (to >= 128 || to < c || to == '\\' || to == '[' || to == ']' || to == '&') {
+          return null;
+        }
+        Arrays.fill(members, c, to + 1, true);
+        i += 3;
+      } else {
+        members[c] = true;
+        i++;
+      }
+    }
+    return members;
+  }
+
+  private static boolean isLiteral(final String s) {
+    for (var i = 0; i < s.length(); i++) {
+      if (META_CHARS.indexOf(s.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // '.' doesn't match line terminators without DOTALL
+  private static boolean containsLineTerminator(
+    final String value,
+    final int from
+  ) {
+    for (var i = from; i < value.length(); i++) {
+      final var c = value.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class RegexMatcher implements StringMatcher {
+
+    // matchers are reused per thread to avoid allocating one per value
+    private final ThreadLocal<Matcher> matchers;
+
+    private RegexMatcher(final Pattern pattern) {
+      this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    @Override
+    public boolean matches(final String value) {
+      return matchers.get().reset(value).matches();
+    }
+  }
+
+  private StringMatchers() {
+    throw new IllegalAccessError();
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncValidatorTest {
+
+  private static final Map<String, FieldDefinition> SCHEMA = Map.of(
+    "age", FieldDefinition.builder().type("Integer").minValue(0L).build()
+  );
+  private static final String JSON_SCHEMA = "{\"type\":\"object\",\"required\":[\"name\"]}";
+
+  private final ValidatorEngine engine = ValidatorEngine.builder().build();
+  private final AtomicInteger offloaded = new AtomicInteger();
+  private final Executor countingExecutor = runnable -> {
+    offloaded.incrementAndGet();
+    new Thread(runnable).start();
+  };
+
+  private AsyncValidator validator(final Executor executor) {
+    return AsyncValidator.builder().engine(engine).executor(executor).inlineMaxFields(2).build();
+  }
+
+  @Test
+  void compiledSmallRecordsRunInline() throws Exception {
+    final var validator = validator(countingExecutor);
+    assertThat(validator.validateMap(SCHEMA, Map.of("age", -1)).get(1, TimeUnit.SECONDS))
+      .extracting(Violation::getRule)
+      .containsExactly(Violation.RULE_MIN_VALUE);
+    assertThat(offloaded).hasValue(1);
+
+    final var inline = validator.validateMap(SCHEMA, Map.of("age", 1));
+    assertThat(inline).isCompletedWithValue(List.of());
+    final var large = validator.validateMap(SCHEMA, Map.of("age", 1, "a", 1, "b", 2));
+    assertThat(large.get(1, TimeUnit.SECONDS)).isEmpty();
+    assertThat(offloaded).hasValue(2);
+  }
+
+  @Test
+  void jsonSchemaCompilationIsOffloaded() throws Exception {
+    final var validator = validator(countingExecutor);
+    final var data = new ObjectMapper().readTree("{}");
+    assertThat(validator.validateJson(JSON_SCHEMA, data).get(1, TimeUnit.SECONDS)).hasSize(1);
+    assertThat(offloaded).hasValue(1);
+    assertThat(validator.compileJson(JSON_SCHEMA)).isDone();
+    assertThat(validator.validateJson(JSON_SCHEMA, "{\"name\":1}".getBytes())).isCompletedWithValue(Set.of());
+    assertThat(offloaded).hasValue(1);
+  }
+
+  @Test
+  void failures() {
+    final var rejecting = validator(runnable -> {
+      throw new RejectedExecutionException("full");
+    });
+    assertThat(rejecting.validateMap(SCHEMA, Map.of())).isCompletedExceptionally();
+
+    final var broken = Map.of("x", FieldDefinition.builder().type("Unknown").build());
+    assertThatThrownBy(() -> validator(countingExecutor).validateMap(broken, Map.of()).get(1, TimeUnit.SECONDS))
+      .isInstanceOf(ExecutionException.class)
+      .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void ownExecutor() throws Exception {
+    try (final var validator = AsyncValidator.builder().engine(engine).inlineMaxFields(0).build()) {
+      assertThat(validator.validateMap(SCHEMA, Map.of("age", 1)).get(1, TimeUnit.SECONDS)).isEmpty();
+    }
+    final var thread = AsyncValidator.threadFactory().newThread(() -> {
+    });
+    assertThat(thread.getName()).startsWith("schema-validator-");
+  }
+
+  @Test
+  void streamWithBackpressure() throws Exception {
+    final var records = new ArrayList<Map<String, Object>>();
+    for (var i = 0; i < 50; i++) {
+      records.add(Map.of("age", i % 10 == 0 ? -i : i));
+    }
+    final var upstream = new ListPublisher(records);
+    final var subscriber = new OneByOneSubscriber(1, 1);
+    validator(countingExecutor).validateAll(SCHEMA, upstream).subscribe(subscriber);
+
+    final var results = subscriber.done.get(5, TimeUnit.SECONDS);
+    assertThat(results).extracting(ValidationResult::getIndex)
+      .containsExactlyElementsOf(LongStream.range(0, 50).boxed().collect(Collectors.toList()));
+    assertThat(results).filteredOn(r -> !r.isValid()).hasSize(4);
+    assertThat(upstream.maxOutstanding).isEqualTo(1);
+  }
+
+  @Test
+  void streamValidatesInParallel() throws Exception {
+    final var records = new ArrayList<Map<String, Object>>();
+    for (var i = 0; i < 4; i++) {
+      records.add(Map.of("age", i));
+    }
+    // every validation waits until all requested ones started
+    final var started = new CountDownLatch(records.size());
+    final var publisher = new ValidationPublisher(new ListPublisher(records), data -> CompletableFuture.supplyAsync(
+      () -> {
+        started.countDown();
+        try {
+          return started.await(5, TimeUnit.SECONDS) ? List.of() : null;
+        } catch (final InterruptedException exc) {
+          throw new IllegalStateException(exc);
+        }
+      },
+      countingExecutor
+    ), records.size());
+    final var subscriber = new OneByOneSubscriber(records.size(), 1);
+    publisher.subscribe(subscriber);
+
+    final var results = subscriber.done.get(5, TimeUnit.SECONDS);
+    assertThat(results).extracting(ValidationResult::getIndex).containsExactly(0L, 1L, 2L, 3L);
+    assertThat(results).allMatch(ValidationResult::isValid);
+  }
+
+  @Test
+  void unboundedDemandKeepsTheWindow() throws Exception {
+    final var records = new ArrayList<Map<String, Object>>();
+    for (var i = 0; i < 2_000; i++) {
+      // above inlineMaxFields, so every record is offloaded
+      records.add(Map.of("age", i % 100 == 0 ? -i : i, "a", 1, "b", 2));
+    }
+    final var upstream = new ListPublisher(records);
+    final var subscriber = new OneByOneSubscriber(Long.MAX_VALUE, 0);
+    try (final var validator = AsyncValidator.builder().engine(engine).executor(AsyncValidator.boundedExecutor(2, 4))
+      .inlineMaxFields(2).streamWindow(4).build()) {
+      validator.validateAll(SCHEMA, upstream).subscribe(subscriber);
+      final var results = subscriber.done.get(10, TimeUnit.SECONDS);
+      assertThat(results).extracting(ValidationResult::getIndex)
+        .containsExactlyElementsOf(LongStream.range(0, records.size()).boxed().collect(Collectors.toList()));
+      assertThat(results).filteredOn(r -> !r.isValid()).hasSize(19);
+    }
+    assertThat(upstream.maxOutstanding).isEqualTo(4);
+  }
+
+  @Test
+  void rejectedStreamRecordsRunOnTheCallingThread() throws Exception {
+    final var rejecting = validator(runnable -> {
+      throw new RejectedExecutionException("full");
+    });
+    final var records = List.<Map<String, Object>>of(
+      Map.of("age", -1, "a", 1, "b", 2),
+      Map.of("age", 1, "a", 1, "b", 2)
+    );
+    final var subscriber = new OneByOneSubscriber(Long.MAX_VALUE, 0);
+    rejecting.validateAll(SCHEMA, new ListPublisher(records)).subscribe(subscriber);
+    assertThat(subscriber.done.get(5, TimeUnit.SECONDS)).extracting(ValidationResult::isValid)
+      .containsExactly(false, true);
+  }
+
+  @Test
+  void nonPositiveRequestFailsAfterPendingResults() {
+    final var records = List.<Map<String, Object>>of(Map.of("age", 1), Map.of("age", 2));
+    final var upstream = new ListPublisher(records);
+    final var subscriber = new OneByOneSubscriber(1, -1);
+    validator(countingExecutor).validateAll(SCHEMA, upstream).subscribe(subscriber);
+
+    assertThat(subscriber.done).failsWithin(5, TimeUnit.SECONDS)
+      .withThrowableOfType(ExecutionException.class)
+      .withCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(subscriber.results).extracting(ValidationResult::getIndex).containsExactly(0L);
+  }
+
+  // emits synchronously on request and remembers the highest demand that was not delivered yet
+  private static final class ListPublisher implements Flow.Publisher<Map<String, Object>> {
+    private final List<Map<String, Object>> records;
+    private long requested;
+    private int next;
+    private long maxOutstanding;
+
+    private ListPublisher(final List<Map<String, Object>> records) {
+      this.records = records;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Map<String, Object>> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public synchronized void request(final long n) {
+          requested += n;
+          maxOutstanding = Math.max(maxOutstanding, requested);
+          while (requested > 0 && next < records.size()) {
+            requested--;
+            subscriber.onNext(records.get(next++));
+          }
+          if (next == records.size()) {
+            next++;
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          next = records.size() + 1;
+        }
+      });
+    }
+  }
+
+  // requests a number of results up front and then a number per result, 0 requests nothing more
+  private static final class OneByOneSubscriber implements Flow.Subscriber<ValidationResult> {
+    private final List<ValidationResult> results = new ArrayList<>();
+    private final CompletableFuture<List<ValidationResult>> done = new CompletableFuture<>();
+    private final long initialRequest;
+    private final long nextRequest;
+    private Flow.Subscription subscription;
+
+    private OneByOneSubscriber(
+      final long initialRequest,
+      final long nextRequest
+    ) {
+      this.initialRequest = initialRequest;
+      this.nextRequest = nextRequest;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(final ValidationResult item) {
+      results.add(item);
+      if (0 != nextRequest) {
+        subscription.request(nextRequest);
+      }
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      done.complete(results);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchValidatorTest {
+
+  private static final Map<String, FieldDefinition> SCHEMA = Map.of(
+    "id", FieldDefinition.builder().type(Integer.class.getSimpleName()).nullable(false).minValue(0L).build(),
+    "name", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build()
+  );
+
+  // every 10th record has a negative id
+  private static List<Map<String, Object>> records(final int count) {
+    final var records = new ArrayList<Map<String, Object>>(count);
+    for (var i = 0; i < count; i++) {
+      records.add(Map.of("id", i % 10 == 0 ? -i - 1 : i, "name", "name" + i));
+    }
+    return records;
+  }
+
+  @Test
+  void validateAllSmallBatch() {
+    final var result = ValidateSchemaValidator.validateAll(SCHEMA, records(20));
+    assertThat(result.size()).isEqualTo(20);
+    assertThat(result.invalidCount()).isEqualTo(2);
+    assertThat(result.isValid(0)).isFalse();
+    assertThat(result.isValid(1)).isTrue();
+    assertThat(result.violation(10)).isNotEmpty();
+    assertThat(result.violation(11)).isEmpty();
+  }
+
+  @Test
+  void validateAllParallel() {
+    final var count = 50_000;
+    final var executor = Executors.newFixedThreadPool(4);
+    try {
+      final var validator = new BatchValidator(ValidateSchemaValidator.compile(SCHEMA), executor, 4);
+      final var result = validator.validateAll(records(count));
+      assertThat(result.size()).isEqualTo(count);
+      assertThat(result.invalidCount()).isEqualTo(count / 10);
+      assertThat(result.violations()).hasSize(count / 10);
+      IntStream.range(0, count).forEach(i -> assertThat(result.isValid(i)).isEqualTo(i % 10 != 0));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void validateAllStream() {
+    final var count = BatchValidator.STREAM_CHUNK_SIZE * 3 + 5;
+    final var result = ValidateSchemaValidator.validateAll(SCHEMA, records(count).stream());
+    assertThat(result.size()).isEqualTo(count);
+    assertThat(result.invalidCount()).isEqualTo((count + 9) / 10);
+    assertThat(result.allValid()).isFalse();
+    assertThat(result.invalidIndexes()).isSorted().hasSize(result.violations().size());
+    IntStream.range(0, count).forEach(i -> assertThat(result.isValid(i)).isEqualTo(i % 10 != 0));
+  }
+
+  @Test
+  void validateAllIterable() {
+    final var result = ValidateSchemaValidator.validateAll(SCHEMA, new LinkedList<>(records(25)));
+    assertThat(result.invalidIndexes()).containsExactly(0, 10, 20);
+    assertThat(result.violation(20)).get().extracting(Violation::getPath).isEqualTo("/id");
+  }
+
+}
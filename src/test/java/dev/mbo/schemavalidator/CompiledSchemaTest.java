@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.StringFieldValidator;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledSchemaTest {
+
+  private static final Map<String, FieldValidator<?>> VALIDATORS = Map.of(
+    String.class.getSimpleName(), new StringFieldValidator(),
+    Integer.class.getSimpleName(), new IntegerFieldValidator()
+  );
+
+  private static final Map<String, FieldDefinition> SCHEMA = Map.of(
+    "name", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build(),
+    "nested", FieldDefinition.builder().type(Object.class.getSimpleName()).nested(
+      Map.of("count", FieldDefinition.builder().type(Integer.class.getSimpleName()).minValue(0L).build())
+    ).build()
+  );
+
+  private final CompiledSchema compiledSchema = CompiledSchema.compile(SCHEMA, VALIDATORS::get);
+
+  @Test
+  void compile() {
+    assertThat(compiledSchema.size()).isEqualTo(2);
+  }
+
+  @Test
+  void compileUnknownType() {
+    final var schema = Map.of("foo", FieldDefinition.builder().type("Unknown").build());
+    assertThatThrownBy(() -> CompiledSchema.compile(schema, VALIDATORS::get))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void validateValid() {
+    compiledSchema.validate(Map.of("name", "foo", "nested", Map.of("count", 1)));
+  }
+
+  @Test
+  void validateNestedInvalid() {
+    assertThatThrownBy(() -> compiledSchema.validate(Map.of("name", "foo", "nested", Map.of("count", -1))))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void validateNestedMissing() {
+    assertThatThrownBy(() -> compiledSchema.validate(Map.of("name", "foo")))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void validateNestedNotAnObject() {
+    assertThatThrownBy(() -> compiledSchema.validate(Map.of("name", "foo", "nested", "bar")))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void validateTraced() {
+    final var logger = (Logger) LoggerFactory.getLogger("dev.mbo.schemavalidator.trace");
+    final var level = logger.getLevel();
+    final var appender = new ListAppender<ILoggingEvent>();
+    appender.start();
+    logger.addAppender(appender);
+    logger.setLevel(Level.DEBUG);
+    try {
+      final var traced = CompiledSchema.compile(SCHEMA, VALIDATORS::get);
+      traced.enableTrace(ValidationTrace.all("test"));
+      try (final var sink = ViolationSink.acquire(10)) {
+        assertThat(traced.validate(Map.of("name", "", "nested", Map.of("count", -1)), sink)).isFalse();
+        assertThat(sink.violations()).extracting(Violation::getPath)
+          .containsExactlyInAnyOrder("/name", "/nested/count");
+      }
+      assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactlyInAnyOrder(
+        "schema=test path=/name type=String valid=false value=",
+        "schema=test path=/nested/count type=Integer valid=false value=-1",
+        "schema=test path=/nested type=Object valid=false value={count=-1}"
+      );
+
+      appender.list.clear();
+      traced.disableTrace();
+      traced.validate(Map.of("name", "foo", "nested", Map.of("count", 1)));
+      assertThat(appender.list).isEmpty();
+    } finally {
+      logger.detachAppender(appender);
+      logger.setLevel(level);
+    }
+  }
+
+  @Test
+  void traceSampleRate() {
+    assertThatThrownBy(() -> ValidationTrace.sampled("test", 0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
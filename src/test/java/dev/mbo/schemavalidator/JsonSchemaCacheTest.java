@@ -16,9 +16,19 @@
 
 package dev.mbo.schemavalidator;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
+import com.networknt.schema.SpecVersion;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class JsonSchemaCacheTest {
 
@@ -29,9 +39,111 @@ class JsonSchemaCacheTest {
     final var jsonSchemaStr = FileUtil.slurpFromClasspath("json_schema.json");
     final var jsonSchema = cache.getOrAdd(jsonSchemaStr);
     assertThat(jsonSchema).isNotNull();
-    final var jsonSchemaGet = cache.get(jsonSchemaStr.hashCode());
+    final var jsonSchemaGet = cache.get(jsonSchemaStr);
     assertThat(jsonSchemaGet).isNotEmpty();
     assertThat(jsonSchema).isEqualTo(jsonSchemaGet.get());
   }
 
+  @Test
+  void hashCollision() {
+    // "Aa" and "BB" share the same String.hashCode
+    final var first = "{\"title\": \"Aa\", \"type\": \"string\"}";
+    final var second = "{\"title\": \"BB\", \"type\": \"string\"}";
+    assertThat(first.hashCode()).isEqualTo(second.hashCode());
+    final var firstSchema = cache.getOrAdd(first);
+    final var secondSchema = cache.getOrAdd(second);
+    assertThat(secondSchema).isNotSameAs(firstSchema);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void getOrAddHandle() {
+    final var jsonSchemaStr = FileUtil.slurpFromClasspath("json_schema.json");
+    final var handle = cache.getOrAddHandle(jsonSchemaStr);
+    assertThat(cache.getOrAddHandle(new String(jsonSchemaStr))).isSameAs(handle);
+    assertThat(handle.getJsonSchema()).isSameAs(cache.getOrAdd(jsonSchemaStr));
+  }
+
+  @Test
+  void getOrAddConcurrently() throws Exception {
+    final var jsonSchemaStr = FileUtil.slurpFromClasspath("json_schema.json");
+    final var executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Callable<JsonSchema>> tasks = Collections.nCopies(32, () -> cache.getOrAdd(jsonSchemaStr));
+      final var schemas = new HashSet<JsonSchema>();
+      for (final var future : executor.invokeAll(tasks)) {
+        schemas.add(future.get());
+      }
+      assertThat(schemas).hasSize(1);
+      assertThat(cache.size()).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void expires() throws InterruptedException {
+    final var expiringCache = new JsonSchemaCache(4, 0);
+    final var jsonSchemaStr = FileUtil.slurpFromClasspath("json_schema.json");
+    expiringCache.getOrAdd(jsonSchemaStr);
+    Thread.sleep(5);
+    assertThat(expiringCache.get(jsonSchemaStr)).isEmpty();
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    final var boundedCache = new JsonSchemaCache(4, 3600, 2);
+    final var first = "{\"type\": \"string\"}";
+    final var second = "{\"type\": \"number\"}";
+    final var third = "{\"type\": \"object\"}";
+    boundedCache.getOrAdd(first);
+    boundedCache.getOrAdd(second);
+    boundedCache.getOrAdd(first);
+    boundedCache.getOrAdd(third);
+    assertThat(boundedCache.size()).isEqualTo(2);
+    assertThat(boundedCache.get(first)).isNotEmpty();
+    assertThat(boundedCache.get(second)).isEmpty();
+  }
+
+  @Test
+  void statistics() {
+    final var small = new JsonSchemaCache(1, 60, 1);
+    small.getOrAdd("{\"type\": \"string\"}");
+    small.getOrAdd("{\"type\": \"string\"}");
+    small.getOrAdd("{\"type\": \"number\"}");
+    assertThat(small.hitCount()).isEqualTo(1);
+    assertThat(small.missCount()).isEqualTo(2);
+    assertThat(small.evictionCount()).isEqualTo(1);
+    assertThat(small.compileTimeNanos()).isPositive();
+  }
+
+  @Test
+  void detectsVersion() throws Exception {
+    final var mapper = new ObjectMapper();
+    // "const" and "if"/"then" only exist since draft-06/-07, draft-04 ignores them
+    final var draft7 = "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+      + "\"if\": {\"properties\": {\"kind\": {\"const\": \"a\"}}}, \"then\": {\"required\": [\"a\"]}}";
+    final var handle = cache.getOrAddHandle(draft7);
+    assertThat(handle.getSpecVersion()).isEqualTo(SpecVersion.VersionFlag.V7);
+    assertThat(handle.validate(mapper.readTree("{\"kind\": \"a\"}"))).hasSize(1);
+    assertThat(handle.validate(mapper.readTree("{\"kind\": \"b\"}"))).isEmpty();
+
+    final var draft201909 = "{\"$schema\": \"https://json-schema.org/draft/2019-09/schema\", "
+      + "\"dependentRequired\": {\"a\": [\"b\"]}}";
+    final var handle201909 = cache.getOrAddHandle(draft201909);
+    assertThat(handle201909.getSpecVersion()).isEqualTo(SpecVersion.VersionFlag.V201909);
+    assertThat(handle201909.validate(mapper.readTree("{\"a\": 1}"))).hasSize(1);
+
+    assertThat(cache.getOrAddHandle("{\"type\": \"object\"}").getSpecVersion()).isEqualTo(SpecVersion.VersionFlag.V4);
+    assertThatThrownBy(() -> cache.getOrAdd("{\"$schema\": \"http://example.com/unknown\"}"))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void factoriesAreSharedPerVersion() {
+    final var factories = JsonSchemaFactories.shared();
+    assertThat(factories.get(SpecVersion.VersionFlag.V7)).isSameAs(factories.get(SpecVersion.VersionFlag.V7));
+    assertThat(factories.get(SpecVersion.VersionFlag.V7)).isNotSameAs(factories.get(SpecVersion.VersionFlag.V4));
+  }
+
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import dev.mbo.schemavalidator.fieldvalidator.DoubleFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.LongFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.StringFieldValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ListCheckTest {
+
+  private static final Map<String, FieldValidator<?>> VALIDATORS = Map.of(
+    "String", new StringFieldValidator(),
+    "Integer", new IntegerFieldValidator(),
+    "Long", new LongFieldValidator(),
+    "Double", new DoubleFieldValidator()
+  );
+
+  private static FieldDefinition.FieldDefinitionBuilder list(final FieldDefinition items) {
+    return FieldDefinition.builder().type("List").items(items);
+  }
+
+  private static List<Violation> validate(
+    final FieldDefinition definition,
+    final Object value
+  ) {
+    final var schema = CompiledSchema.compile(Map.of("values", definition), VALIDATORS::get);
+    final var data = new HashMap<String, Object>();
+    data.put("values", value);
+    final var sink = new ViolationSink(100);
+    schema.validate(data, sink);
+    return sink.violations();
+  }
+
+  private static List<String> paths(final List<Violation> violations) {
+    return violations.stream().map(Violation::getPath).collect(Collectors.toList());
+  }
+
+  @Test
+  void integerElements() {
+    final var definition = list(FieldDefinition.builder().type("Integer").minValue(0L).maxValue(10L).build()).build();
+    assertThat(validate(definition, List.of(0, 5, 10))).isEmpty();
+    assertThat(validate(definition, new int[]{0, 5, 10})).isEmpty();
+    assertThat(validate(definition, new Integer[]{0, 5, 10})).isEmpty();
+    assertThat(validate(definition, new LinkedList<>(List.of(0, 5, 10)))).isEmpty();
+
+    final var violations = validate(definition, List.of(1, -1, 2, 11, 3L));
+    assertThat(paths(violations)).containsExactly("/values/1", "/values/3", "/values/4");
+    assertThat(violations).extracting(Violation::getRule)
+      .containsExactly(Violation.RULE_MIN_VALUE, Violation.RULE_MAX_VALUE, Violation.RULE_TYPE);
+    assertThat(validate(definition, new int[]{1, -1, 2, 11})).isEqualTo(validate(definition, List.of(1, -1, 2, 11)));
+  }
+
+  @Test
+  void longAndDoubleElements() {
+    final var longs = list(FieldDefinition.builder().type("Long").maxValue(5L).build()).build();
+    assertThat(validate(longs, new long[]{1, 5})).isEmpty();
+    assertThat(paths(validate(longs, new long[]{1, 6}))).containsExactly("/values/1");
+    assertThat(paths(validate(longs, List.of(1L, 6L)))).containsExactly("/values/1");
+    // EXACT widening: an int array is no list of longs
+    assertThat(validate(longs, new int[]{1})).extracting(Violation::getRule).containsExactly(Violation.RULE_TYPE);
+
+    final var doubles = list(FieldDefinition.builder().type("Double").minDoubleValue(0.5).build()).build();
+    assertThat(validate(doubles, new double[]{0.5, 1.0})).isEmpty();
+    assertThat(paths(validate(doubles, List.of(0.5, 0.25)))).containsExactly("/values/1");
+  }
+
+  @Test
+  void elementsWithoutBulkCheck() {
+    final var strings = list(FieldDefinition.builder().type("String").pattern("[a-z]+").build()).build();
+    assertThat(validate(strings, List.of("a", "b"))).isEmpty();
+    assertThat(paths(validate(strings, List.of("a", "B", "c", "D")))).containsExactly("/values/1", "/values/3");
+
+    final var widened = list(FieldDefinition.builder().type("Long").widening(NumericWidening.LOSSLESS).build()).build();
+    assertThat(validate(widened, new int[]{1, 2})).isEmpty();
+  }
+
+  @Test
+  void nullElements() {
+    final var nullable = list(FieldDefinition.builder().type("Integer").nullable(true).build()).build();
+    assertThat(validate(nullable, Arrays.asList(1, null))).isEmpty();
+    final var notNull = list(FieldDefinition.builder().type("Integer").nullable(false).build()).build();
+    assertThat(validate(notNull, Arrays.asList(1, null))).extracting(Violation::getRule)
+      .containsExactly(Violation.RULE_REQUIRED);
+  }
+
+  @Test
+  void listItself() {
+    final var definition = list(FieldDefinition.builder().type("Integer").build()).minItems(1).maxItems(3).build();
+    assertThat(validate(definition, null)).extracting(Violation::getRule).containsExactly(Violation.RULE_REQUIRED);
+    assertThat(validate(definition, "1")).extracting(Violation::getRule).containsExactly(Violation.RULE_TYPE);
+    assertThat(validate(definition, List.of()).get(0).getMessage())
+      .isEqualTo("values has 0 items, less than min of 1");
+    assertThat(validate(definition, new int[4]).get(0).getMessage())
+      .isEqualTo("values has 4 items, more than max of 3");
+    final var nullable = list(FieldDefinition.builder().type("Integer").build()).nullable(true).build();
+    assertThat(validate(nullable, null)).isEmpty();
+  }
+
+  @Test
+  void uniqueItems() {
+    final var definition = list(FieldDefinition.builder().type("Integer").build()).uniqueItems(true).build();
+    assertThat(validate(definition, List.of(3, 1, 2))).isEmpty();
+    assertThat(validate(definition, new int[]{3, 1, 2})).isEmpty();
+    final var violations = validate(definition, new int[]{3, 1, 3});
+    assertThat(violations).extracting(Violation::getPath).containsExactly("/values");
+    assertThat(violations.get(0).getMessage()).isEqualTo("values contains 3 more than once");
+    assertThat(validate(definition, List.of(3, 1, 3))).isEqualTo(violations);
+  }
+
+  @Test
+  void nestedElements() {
+    final var objects = list(FieldDefinition.builder().type("Object").nested(Map.of(
+      "name", FieldDefinition.builder().type("String").notBlank(true).build(),
+      "scores", list(FieldDefinition.builder().type("Integer").minValue(0L).build()).build()
+    )).build()).build();
+    final var violations = validate(objects, List.of(
+      Map.of("name", "a", "scores", List.of(1)),
+      Map.of("name", "", "scores", List.of(1, 2, -3)),
+      "b"
+    ));
+    assertThat(paths(violations)).containsExactlyInAnyOrder("/values/1/name", "/values/1/scores/2", "/values/2");
+  }
+
+  @Test
+  void parallelReportsTheSameViolations() {
+    final var sequential = list(FieldDefinition.builder().type("Integer").minValue(0L).build()).build();
+    final var parallel = list(FieldDefinition.builder().type("Integer").minValue(0L).build()).parallelItems(10).build();
+    final var values = new ArrayList<Integer>();
+    for (var i = 0; i < 10_000; i++) {
+      values.add(i % 997 == 0 && i > 0 ? -i : i);
+    }
+    assertThat(validate(parallel, values)).hasSize(10).isEqualTo(validate(sequential, values));
+    final var array = values.stream().mapToInt(Integer::intValue).toArray();
+    assertThat(validate(parallel, array)).isEqualTo(validate(sequential, values));
+    values.replaceAll(Math::abs);
+    assertThat(validate(parallel, values)).isEmpty();
+  }
+
+  @Test
+  void missingItems() {
+    assertThatThrownBy(() -> CompiledSchema.compile(
+      Map.of("values", FieldDefinition.builder().type("List").build()), VALIDATORS::get
+    )).isInstanceOf(IllegalStateException.class);
+  }
+}
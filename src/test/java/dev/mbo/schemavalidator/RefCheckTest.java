@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefCheckTest {
+
+  private static final Map<String, FieldDefinition> COMMENT = Map.of(
+    "text", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build(),
+    "replies", FieldDefinition.builder().type("List").nullable(true)
+      .items(FieldDefinition.builder().type(Object.class.getSimpleName()).ref("comment").build()).build()
+  );
+  private static final Map<String, FieldDefinition> THREAD = Map.of(
+    "root", FieldDefinition.builder().type(Object.class.getSimpleName()).ref("comment").build()
+  );
+
+  private final ValidatorEngine engine = ValidatorEngine.builder().definition("comment", COMMENT).build();
+
+  @Test
+  void selfReference() {
+    final var data = Map.<String, Object>of("root", comment("a", comment("b"), comment("c", comment("d"))));
+    assertThat(validate(engine.compile(THREAD), data)).isEmpty();
+  }
+
+  @Test
+  void violationPathsOfReferencedObjects() {
+    final var data = Map.<String, Object>of(
+      "root", comment("a", comment("b"), comment("c", comment(""), comment("e", comment(""))))
+    );
+    assertThat(validate(engine.compile(THREAD), data))
+      .extracting(Violation::getPath)
+      .containsExactlyInAnyOrder("/root/replies/1/replies/0/text", "/root/replies/1/replies/1/replies/0/text");
+  }
+
+  @Test
+  void referenceFromList() {
+    final Map<String, FieldDefinition> schema = Map.of(
+      "comments", FieldDefinition.builder().type("List")
+        .items(FieldDefinition.builder().type(Object.class.getSimpleName()).ref("comment").build()).build()
+    );
+    final var data = Map.<String, Object>of("comments", List.of(comment("a"), comment("b", comment(""))));
+    assertThat(validate(engine.compile(schema), data))
+      .extracting(Violation::getPath)
+      .containsExactly("/comments/1/replies/0/text");
+  }
+
+  @Test
+  void deepDataStopsAtMaxDepth() {
+    // built iteratively, far deeper than the stack would allow recursively
+    var deepest = comment("leaf");
+    for (var i = 0; i < 100_000; i++) {
+      deepest = comment("reply", deepest);
+    }
+    final var violations = validate(engine.compile(THREAD), Map.of("root", deepest));
+    assertThat(violations).hasSize(1);
+    assertThat(violations.get(0).getRule()).isEqualTo(Violation.RULE_MAX_DEPTH);
+    assertThat(violations.get(0).getPath()).startsWith("/root/replies/0/replies/0");
+  }
+
+  @Test
+  void wideDataStopsAtMaxNodes() {
+    final var limited = ValidatorEngine.builder().definition("comment", COMMENT).maxNodes(10).build();
+    final var replies = new Map<?, ?>[20];
+    for (var i = 0; i < replies.length; i++) {
+      replies[i] = comment("reply");
+    }
+    final var violations = validate(limited.compile(THREAD), Map.of("root", comment("a", replies)));
+    assertThat(violations).extracting(Violation::getRule).containsExactly(Violation.RULE_MAX_NODES);
+    assertThat(violations.get(0).getPath()).isEqualTo("/root/replies/9");
+  }
+
+  @Test
+  void missingDefinition() {
+    assertThatThrownBy(() -> ValidatorEngine.builder().build().compile(THREAD))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("comment");
+  }
+
+  @Test
+  void streaming() throws IOException {
+    final var json = "{\"root\":{\"text\":\"a\",\"replies\":[{\"text\":\"b\"},{\"text\":\"\"}]}}";
+    try (final var parser = new JsonFactory().createParser(json)) {
+      assertThat(new StreamingSchemaValidator(engine.compile(THREAD), false).validate(parser))
+        .extracting(Violation::getPath)
+        .containsExactly("/root/replies/1/text");
+    }
+  }
+
+  private static List<Violation> validate(
+    final CompiledSchema schema,
+    final Map<String, Object> data
+  ) {
+    final var sink = new ViolationSink(Integer.MAX_VALUE);
+    schema.validate(data, sink);
+    return sink.violations();
+  }
+
+  private static Map<String, Object> comment(
+    final String text,
+    final Map<?, ?>... replies
+  ) {
+    final var comment = new HashMap<String, Object>();
+    comment.put("text", text);
+    comment.put("replies", List.of(replies));
+    return comment;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaRegistryTest {
+
+  private static final String HOME = "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+    + "\"properties\": {\"home\": {\"$ref\": \"https://example.com/schemas/address.json\"}}}";
+  private static final String WORK = "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+    + "\"properties\": {\"work\": {\"$ref\": \"https://example.com/schemas/address.json#\"}}}";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private static JsonSchemaCache cache(final SchemaRegistry registry) {
+    return new JsonSchemaCache(16, 3600, 16, null, registry);
+  }
+
+  @Test
+  void sharesReferencedSchemas() throws IOException {
+    final var registry = SchemaRegistry.builder().classpath("https://example.com/schemas/", "schemas/").build();
+    final var cache = cache(registry);
+    assertThat(cache.getOrAddHandle(HOME).validate(mapper.readTree("{\"home\": {}}"))).hasSize(1);
+    assertThat(cache.getOrAddHandle(WORK).validate(mapper.readTree("{\"work\": {\"street\": \"a\"}}"))).isEmpty();
+    assertThat(registry.fetchCount()).isEqualTo(1);
+  }
+
+  @Test
+  void resolvesIdsOfScannedFiles(@TempDir final Path directory) throws IOException {
+    Files.writeString(directory.resolve("some-file-name.json"),
+      "{\"$id\": \"https://example.com/schemas/address.json\", \"required\": [\"city\"]}");
+    final var registry = SchemaRegistry.builder().scan(directory).build();
+    assertThat(cache(registry).getOrAddHandle(HOME).validate(mapper.readTree("{\"home\": {\"street\": \"a\"}}")))
+      .hasSize(1);
+    assertThat(registry.fetchCount()).isEqualTo(1);
+  }
+
+  @Test
+  void neverLoadsRemoteSchemas(@TempDir final Path directory) throws IOException {
+    final var registry = SchemaRegistry.builder().directory("https://example.com/schemas/", directory).build();
+    assertThatThrownBy(() -> registry.fetch(URI.create("https://example.org/schemas/address.json")))
+      .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> registry.fetch(URI.create("https://example.com/schemas/../secret.json")))
+      .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> cache(registry).getOrAdd(HOME)).isInstanceOf(RuntimeException.class);
+    assertThat(registry.fetchCount()).isZero();
+  }
+}
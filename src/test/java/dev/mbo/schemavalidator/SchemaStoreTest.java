@@ -0,0 +1,169 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaStoreTest {
+
+  private static final String SCHEMA = "{\"type\":\"object\",\"required\":[\"a\"]}";
+
+  @Test
+  void restart(@TempDir final Path directory) {
+    final var file = directory.resolve("schemas.bin");
+    final var store = SchemaStore.open(file);
+    final var cache = new JsonSchemaCache(16, 60, 16, store);
+    cache.getOrAdd(SCHEMA);
+    cache.getOrAdd(SCHEMA);
+    store.flush();
+    assertThat(Files.exists(file)).isTrue();
+
+    final var reopened = SchemaStore.open(file);
+    assertThat(reopened.schemas()).containsExactly(SCHEMA);
+    final var restarted = new JsonSchemaCache(16, 60, 16, reopened);
+    assertThat(restarted.preloadStored()).isEqualTo(1);
+    assertThat(restarted.get(SCHEMA)).isNotEmpty();
+  }
+
+  @Test
+  void version() {
+    assertThat(SchemaStore.VERSION).doesNotContain("unknown").matches("[^/]+/1\\.0\\.\\d+");
+  }
+
+  @Test
+  void corruptFile(@TempDir final Path directory) throws Exception {
+    final var file = directory.resolve("schemas.bin");
+    final var written = SchemaStore.open(file);
+    written.add(SCHEMA);
+    written.flush();
+    final var bytes = Files.readAllBytes(file);
+    // flip a byte of the schema content
+    bytes[bytes.length - 2] ^= 1;
+    Files.write(file, bytes);
+    assertThat(SchemaStore.open(file).size()).isZero();
+
+    Files.write(file, new byte[]{1, 2, 3});
+    assertThat(SchemaStore.open(file).size()).isZero();
+
+    final var store = SchemaStore.open(file);
+    store.add(SCHEMA);
+    store.flush();
+    assertThat(SchemaStore.open(file).size()).isEqualTo(1);
+  }
+
+  @Test
+  void otherVersion(@TempDir final Path directory) {
+    final var file = directory.resolve("schemas.bin");
+    final var old = SchemaStore.open(file, 16, "0.0.1/1.0.0");
+    old.add(SCHEMA);
+    old.flush();
+    assertThat(SchemaStore.open(file, 16, "0.0.1/1.0.0").schemas()).containsExactly(SCHEMA);
+
+    final var store = SchemaStore.open(file);
+    assertThat(store.size()).isZero();
+    // the stale file is replaced by the next write
+    store.add("{\"type\":\"string\"}");
+    store.flush();
+    assertThat(SchemaStore.open(file).schemas()).containsExactly("{\"type\":\"string\"}");
+  }
+
+  @Test
+  void appends(@TempDir final Path directory) throws Exception {
+    final var file = directory.resolve("schemas.bin");
+    final var store = SchemaStore.open(file);
+    store.add(SCHEMA);
+    store.flush();
+    final var first = Files.readAllBytes(file);
+    store.add(SCHEMA);
+    store.flush();
+    assertThat(Files.readAllBytes(file)).isEqualTo(first);
+
+    store.add("{\"type\":\"string\"}");
+    store.flush();
+    final var second = Files.readAllBytes(file);
+    assertThat(second.length).isGreaterThan(first.length);
+    assertThat(Arrays.copyOf(second, first.length)).isEqualTo(first);
+    assertThat(SchemaStore.open(file).schemas()).containsExactly(SCHEMA, "{\"type\":\"string\"}");
+  }
+
+  @Test
+  void maxEntries(@TempDir final Path directory) {
+    final var file = directory.resolve("schemas.bin");
+    final var store = SchemaStore.open(file, 2);
+    for (var i = 0; i < 10; i++) {
+      store.add("{\"maxLength\":" + i + "}");
+      store.flush();
+    }
+    assertThat(store.schemas()).containsExactly("{\"maxLength\":8}", "{\"maxLength\":9}");
+    assertThat(SchemaStore.open(file, 2).schemas()).containsExactly("{\"maxLength\":8}", "{\"maxLength\":9}");
+    assertThat(SchemaStore.open(file, 1).schemas()).containsExactly("{\"maxLength\":9}");
+  }
+
+  @Test
+  void truncatedRecord(@TempDir final Path directory) throws Exception {
+    final var file = directory.resolve("schemas.bin");
+    final var store = SchemaStore.open(file);
+    store.add(SCHEMA);
+    store.flush();
+    store.add("{\"type\":\"string\"}");
+    store.flush();
+    final var bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    assertThat(SchemaStore.open(file).schemas()).containsExactly(SCHEMA);
+  }
+
+  @Test
+  void mapSchemas(@TempDir final Path directory) {
+    final var file = directory.resolve("schemas.bin");
+    final var store = SchemaStore.open(file);
+    final var engine = ValidatorEngine.builder()
+      .jsonSchemaCache(new JsonSchemaCache(16, 60, 16, store))
+      .build();
+    engine.compile(mapSchema());
+    store.flush();
+
+    final var reopened = SchemaStore.open(file);
+    assertThat(reopened.mapSchemas()).containsExactly(mapSchema());
+    final var restarted = ValidatorEngine.builder()
+      .jsonSchemaCache(new JsonSchemaCache(16, 60, 16, reopened))
+      .build();
+    assertThat(restarted.preloadStored()).isEqualTo(1);
+    final var schema = mapSchema();
+    assertThat(restarted.compile(schema)).isSameAs(restarted.compile(mapSchema()));
+    try (final var sink = ViolationSink.acquire(4)) {
+      assertThat(restarted.compile(schema).validate(Map.<String, Object>of("name", ""), sink)).isFalse();
+    }
+  }
+
+  private static Map<String, FieldDefinition> mapSchema() {
+    return Map.of(
+      "name", FieldDefinition.builder().type("String").notBlank(true).build(),
+      "nested", FieldDefinition.builder().type("Object").nullable(true).nested(Map.of(
+        "count", FieldDefinition.builder().type("Integer").minValue(0).build()
+      )).build()
+    );
+  }
+
+}
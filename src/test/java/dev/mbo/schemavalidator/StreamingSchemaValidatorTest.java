@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingSchemaValidatorTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final JsonFactory jsonFactory = new JsonFactory();
+  private final CompiledSchema schema = ValidateSchemaValidator.compile(ValidateMapTest.SHARED_SCHEMA);
+
+  private Map<String, Object> data() {
+    return new HashMap<>(Map.of(
+      "name", "stefan",
+      "age", 30,
+      "time", System.currentTimeMillis(),
+      "zero", 0.0,
+      "salary", "2549.50",
+      "nested", Map.of("test", "val1", "test2", 2)
+    ));
+  }
+
+  private List<Violation> validate(
+    final Object data,
+    final boolean failFast
+  ) throws IOException {
+    final var json = data instanceof String ? (String) data : objectMapper.writeValueAsString(data);
+    try (final var parser = jsonFactory.createParser(json)) {
+      return new StreamingSchemaValidator(schema, failFast).validate(parser);
+    }
+  }
+
+  @Test
+  void valid() throws IOException {
+    assertThat(validate(data(), true)).isEmpty();
+  }
+
+  @Test
+  void unknownFieldsAreSkipped() throws IOException {
+    final var data = data();
+    data.put("unknown", Map.of("deep", List.of(1, Map.of("a", "b"))));
+    assertThat(validate(data, true)).isEmpty();
+  }
+
+  @Test
+  void invalidValues() throws IOException {
+    final var data = data();
+    data.put("age", -1);
+    data.put("nested", Map.of("test", "", "test2", 1));
+    assertThat(validate(data, true)).hasSize(1);
+    assertThat(validate(data, false)).hasSize(2);
+  }
+
+  @Test
+  void missingFields() throws IOException {
+    final var data = data();
+    data.remove("time");
+    data.remove("nested");
+    assertThat(validate(data, false)).hasSize(2);
+  }
+
+  @Test
+  void wrongStructure() throws IOException {
+    final var data = data();
+    data.put("name", List.of("a"));
+    data.put("nested", "foo");
+    assertThat(validate(data, false)).hasSize(2);
+    assertThat(validate("[]", false)).hasSize(1);
+  }
+
+  @Test
+  void listFields() throws IOException {
+    final var listSchema = ValidateSchemaValidator.compile(Map.of(
+      "values", FieldDefinition.builder().type("List").items(FieldDefinition.builder().type("Object").nested(Map.of(
+        "ids", FieldDefinition.builder().type("List").items(FieldDefinition.builder().type("Integer").build()).build()
+      )).build()).build()
+    ));
+    try (final var parser = jsonFactory.createParser("{\"values\": [{\"ids\": [1, 2]}, {\"ids\": [3, \"x\"]}]}")) {
+      assertThat(new StreamingSchemaValidator(listSchema, false).validate(parser))
+        .extracting(Violation::getPath)
+        .containsExactly("/values/1/ids/1");
+    }
+  }
+
+  @Test
+  void malformedJson() {
+    assertThatThrownBy(() -> validate("{\"name\": ", true)).isInstanceOf(IllegalStateException.class);
+  }
+
+}
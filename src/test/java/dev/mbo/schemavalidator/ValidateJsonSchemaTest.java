@@ -16,10 +16,16 @@
 
 package dev.mbo.schemavalidator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import org.junit.jupiter.api.Test;
 
 import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,6 +41,33 @@ public class ValidateJsonSchemaTest extends AbstractValidatorTest {
     assertThat(validator.validate(toTest)).isEmpty();
   }
 
+  @Test
+  protected void testJsonNodeData() {
+    final var toTest = new ToTestJsonNode(
+      FileUtil.slurpFromClasspath("json_schema.json"),
+      new ObjectMapper().valueToTree(sharedData())
+    );
+    assertThat(validator.validate(toTest)).isEmpty();
+  }
+
+  @Test
+  protected void testRawJsonData() throws JsonProcessingException {
+    final var schema = FileUtil.slurpFromClasspath("json_schema.json");
+    final var json = new ObjectMapper().writeValueAsString(sharedData());
+    assertThat(validator.validate(new ToTestRawJson(schema, json))).isEmpty();
+    assertThat(validator.validate(new ToTestRawJson(schema, "{\"name\": 1}"))).hasSize(1);
+    assertThat(validator.validate(new ToTestRawJson(schema, "{no json"))).hasSize(1);
+  }
+
+  @Test
+  protected void testValidateJsonBytes() throws JsonProcessingException {
+    final var schema = FileUtil.slurpFromClasspath("json_schema.json");
+    final var json = new ObjectMapper().writeValueAsBytes(sharedData());
+    assertThat(ValidateSchemaValidator.validateJson(schema, json)).isEmpty();
+    assertThat(ValidateSchemaValidator.validateJson(schema, new ByteArrayInputStream(json))).isEmpty();
+    assertThat(ValidateSchemaValidator.validateJson(schema, "{}".getBytes(StandardCharsets.UTF_8))).isNotEmpty();
+  }
+
   @Builder
   @ValidateSchema(
     type = ValidateType.JSON_SCHEMA,
@@ -50,4 +83,26 @@ public class ValidateJsonSchemaTest extends AbstractValidatorTest {
     private String otherField;
   }
 
+  @AllArgsConstructor
+  @ValidateSchema(
+    type = ValidateType.JSON_SCHEMA,
+    jsonSchema = "schema",
+    dataFieldName = "data"
+  )
+  public static class ToTestJsonNode {
+    private String schema;
+    private JsonNode data;
+  }
+
+  @AllArgsConstructor
+  @ValidateSchema(
+    type = ValidateType.JSON_SCHEMA,
+    jsonSchema = "schema",
+    dataFieldName = "data"
+  )
+  public static class ToTestRawJson {
+    private String schema;
+    private String data;
+  }
+
 }
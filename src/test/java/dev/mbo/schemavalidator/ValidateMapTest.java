@@ -16,9 +16,11 @@
 
 package dev.mbo.schemavalidator;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import org.junit.jupiter.api.Test;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.util.Map;
@@ -167,6 +169,48 @@ class ValidateMapTest extends AbstractValidatorTest {
     assertThat(validator.validate(toTest)).hasSize(1);
   }
 
+  @Test
+  protected void testNamePattern() {
+    final var schema = Map.of(
+      "name", FieldDefinition.builder().type(String.class.getSimpleName()).pattern("[a-z]+").build()
+    );
+    assertThat(validator.validate(ToTest.builder().schema(schema).data(Map.of("name", "stefan")).build())).isEmpty();
+    assertThat(validator.validate(ToTest.builder().schema(schema).data(Map.of("name", "Stefan")).build())).hasSize(1);
+  }
+
+  @Test
+  protected void testUnknownSchemaField() {
+    final var toTest = new WrongSchemaField(SHARED_SCHEMA, sharedData());
+    assertThat(validator.validate(toTest)).hasSize(1);
+    assertThat(validator.validate(toTest)).hasSize(1);
+  }
+
+  @Test
+  protected void testCollectAll() {
+    final var toTest = new ToTestCollectAll(
+      SHARED_SCHEMA,
+      sharedData(Map.of("name", "", "age", -1, "nested", Map.of("test", "", "test2", 1)))
+    );
+    final var violations = validator.validate(toTest);
+    assertThat(violations).hasSize(3);
+    assertThat(violations)
+      .extracting(v -> v.getPropertyPath().toString())
+      .containsExactlyInAnyOrder("data/name", "data/age", "data/nested/test");
+    assertThat(violations)
+      .extracting(ConstraintViolation::getMessage)
+      .contains("-1 is smaller than min value of 0");
+  }
+
+  @Test
+  protected void testCollectAllEscapesValues() {
+    final var schema = Map.of(
+      "name", FieldDefinition.builder().type(Integer.class.getSimpleName()).build()
+    );
+    final var violations = validator.validate(new ToTestCollectAll(schema, Map.of("name", "${1+1}")));
+    assertThat(violations).hasSize(1);
+    assertThat(violations.iterator().next().getMessage()).startsWith("${1+1} is not an");
+  }
+
   @Builder
   @ValidateSchema(
     type = ValidateType.MAP,
@@ -182,4 +226,27 @@ class ValidateMapTest extends AbstractValidatorTest {
     private String otherField;
   }
 
+  @AllArgsConstructor
+  @ValidateSchema(
+    type = ValidateType.MAP,
+    schemaFieldName = "unknown",
+    dataFieldName = "data"
+  )
+  public static class WrongSchemaField {
+    private Map<String, FieldDefinition> schema;
+    private Map<String, Object> data;
+  }
+
+  @AllArgsConstructor
+  @ValidateSchema(
+    type = ValidateType.MAP,
+    schemaFieldName = "schema",
+    dataFieldName = "data",
+    collectAll = true
+  )
+  public static class ToTestCollectAll {
+    private Map<String, FieldDefinition> schema;
+    private Map<String, Object> data;
+  }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.mbo.schemavalidator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValidationSnapshotTest extends AbstractValidatorTest {
+
+  private final CompiledSchema schema = ValidateSchemaValidator.compile(ValidateMapTest.SHARED_SCHEMA);
+
+  @Test
+  void snapshotMatchesFullValidation() {
+    final var data = sharedData(Map.of("name", "", "nested", Map.of("test", "", "test2", -1)));
+    final var sink = new ViolationSink(Integer.MAX_VALUE);
+    schema.validate(data, sink);
+    final var snapshot = schema.snapshot(data);
+    assertThat(snapshot.isValid()).isFalse();
+    assertThat(snapshot.violations()).usingRecursiveFieldByFieldElementComparator().isEqualTo(sink.violations());
+  }
+
+  @Test
+  void revalidateChangedKeys() {
+    final var data = new HashMap<>(sharedData());
+    final var base = schema.snapshot(data);
+    assertThat(base.isValid()).isTrue();
+
+    data.put("age", -1);
+    final var invalid = schema.revalidate(base, data, Set.of("age"));
+    assertThat(invalid.violations()).extracting(Violation::getPath).containsExactly("/age");
+    assertThat(base.isValid()).isTrue();
+
+    data.put("age", 1);
+    assertThat(schema.revalidate(invalid, data, Set.of("/age")).isValid()).isTrue();
+  }
+
+  @Test
+  void revalidateOnlyTheChangedFields() {
+    final var data = new HashMap<>(sharedData(Map.of("name", "")));
+    final var base = schema.snapshot(data);
+    data.put("zero", "wrong");
+    // name is still blank, but only zero is checked again and name keeps its outcome from the base
+    assertThat(schema.revalidate(base, data, List.of("zero")).violations())
+      .extracting(Violation::getPath)
+      .containsExactlyInAnyOrder("/name", "/zero");
+  }
+
+  @Test
+  void revalidateNestedPointer() {
+    final var data = new HashMap<>(sharedData(Map.of("nested", Map.of("test", "", "test2", -1))));
+    final var base = schema.snapshot(data);
+    assertThat(base.violationCount()).isEqualTo(2);
+
+    data.put("nested", Map.of("test", "fixed", "test2", -1));
+    final var snapshot = schema.revalidate(base, data, List.of("/nested/test"));
+    assertThat(snapshot.violations()).extracting(Violation::getPath).containsExactly("/nested/test2");
+
+    data.put("nested", "not an object");
+    assertThat(schema.revalidate(snapshot, data, List.of("/nested/test")).violations())
+      .extracting(Violation::getPath)
+      .containsExactly("/nested");
+  }
+
+  @Test
+  void unknownKeysAndWholeRecord() {
+    final var data = new HashMap<>(sharedData());
+    final var base = schema.snapshot(data);
+    data.put("name", "");
+    assertThat(schema.revalidate(base, data, List.of("unknown", "/unknown/x")).isValid()).isTrue();
+    assertThat(schema.revalidate(base, data, List.of("")).violationCount()).isEqualTo(1);
+  }
+
+  @Test
+  void otherSchema() {
+    final var base = schema.snapshot(sharedData());
+    final var other = CompiledSchema.compile(ValidateMapTest.SHARED_SCHEMA, ValidateSchemaValidator.defaultEngine()
+      .validators()::get);
+    assertThatThrownBy(() -> other.revalidate(base, sharedData(), List.of("name")))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+}
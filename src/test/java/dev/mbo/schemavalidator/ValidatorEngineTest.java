@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
+import dev.mbo.schemavalidator.fieldvalidator.StringFieldValidator;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValidatorEngineTest {
+
+  private static final Map<String, FieldDefinition> SCHEMA = Map.of(
+    "name", FieldDefinition.builder().type(String.class.getSimpleName()).notBlank(true).build(),
+    "time", FieldDefinition.builder().type(Long.class.getSimpleName()).nullable(false).build()
+  );
+
+  private static final Map<String, Object> DATA = Map.of("name", "foo", "time", 1L);
+  private static final String TO_TEST = ValidateMapTest.ToTest.class.getName();
+
+  private static Validator validator(final ValidatorEngine engine) {
+    final var configuration = Validation.byDefaultProvider().configure();
+    return configuration
+      .constraintValidatorFactory(
+        new EngineConstraintValidatorFactory(engine, configuration.getDefaultConstraintValidatorFactory())
+      )
+      .buildValidatorFactory()
+      .getValidator();
+  }
+
+  @Test
+  void enginesWithDifferentValidators() {
+    final var full = ValidatorEngine.builder().build();
+    final var withoutLong = ValidatorEngine.builder()
+      .validators(new StringFieldValidator(), new IntegerFieldValidator())
+      .build();
+
+    full.compile(SCHEMA).validate(DATA);
+    assertThatThrownBy(() -> withoutLong.compile(SCHEMA)).isInstanceOf(IllegalStateException.class);
+
+    final var toTest = ValidateMapTest.ToTest.builder().schema(SCHEMA).data(DATA).build();
+    assertThat(validator(full).validate(toTest)).isEmpty();
+    assertThat(validator(withoutLong).validate(toTest)).hasSize(1);
+  }
+
+  @Test
+  void compiledPerEngine() {
+    final var engine = ValidatorEngine.builder().build();
+    assertThat(engine.compile(SCHEMA)).isSameAs(engine.compile(SCHEMA));
+    assertThat(engine.compile(SCHEMA)).isNotSameAs(ValidatorEngine.builder().build().compile(SCHEMA));
+  }
+
+  @Test
+  void duplicateValidators() {
+    final var builder = ValidatorEngine.builder().validators(new StringFieldValidator(), new StringFieldValidator());
+    assertThatThrownBy(builder::build).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void toBuilderKeepsCache() {
+    final var engine = ValidatorEngine.builder().build();
+    final var copy = engine.toBuilder().build();
+    assertThat(copy.jsonSchemaCache()).isSameAs(engine.jsonSchemaCache());
+    assertThat(copy.validators()).isEqualTo(engine.validators());
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void deprecatedDefaultEngineSettersInAnyOrder() {
+    final var objectMapper = new ObjectMapper();
+
+    final var mapperFirst = new ValidateSchemaValidator.DefaultEngine();
+    mapperFirst.setObjectMapper(objectMapper);
+    mapperFirst.initMapValidators(new StringFieldValidator());
+    assertThat(mapperFirst.get().objectMapper()).isSameAs(objectMapper);
+    assertThat(mapperFirst.get().validators()).containsOnlyKeys("String");
+
+    final var validatorsFirst = new ValidateSchemaValidator.DefaultEngine();
+    validatorsFirst.initMapValidators(new StringFieldValidator());
+    validatorsFirst.setObjectMapper(objectMapper);
+    assertThat(validatorsFirst.get().objectMapper()).isSameAs(objectMapper);
+    assertThat(validatorsFirst.get().validators()).containsOnlyKeys("String");
+
+    // validators can't change once the engine is in use
+    final var used = new ValidateSchemaValidator.DefaultEngine();
+    final var engine = used.get();
+    used.initMapValidators(new StringFieldValidator());
+    assertThat(used.get()).isSameAs(engine);
+  }
+
+  @Test
+  void warmUpWhenBuilt() {
+    final var calls = new AtomicInteger();
+    final var throwing = new FieldValidator<Boolean>() {
+      @Override
+      public void validate(final String key, final Object data, final FieldDefinition fieldDefinition) {
+        calls.incrementAndGet();
+        throw new UnsupportedOperationException("broken");
+      }
+
+      @Override
+      public Class<Boolean> supportsType() {
+        return Boolean.class;
+      }
+    };
+
+    ValidatorEngine.builder().validators(throwing).warmUp(false).build();
+    assertThat(calls).hasValue(0);
+
+    final var engine = ValidatorEngine.builder().validators(throwing, new StringFieldValidator()).build();
+    assertThat(calls).hasValue(2);
+    engine.warmUp();
+    assertThat(calls).hasValue(4);
+  }
+
+  @Test
+  void jsonSchemasFollowTheCacheLifetime() {
+    final var schemaA = "{\"type\":\"object\",\"required\":[\"a\"]}";
+    final var schemaB = "{\"type\":\"object\",\"required\":[\"b\"]}";
+    final var cache = new JsonSchemaCache(16, 60, 1);
+    final var engine = ValidatorEngine.builder().jsonSchemaCache(cache).build();
+    final var data = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+
+    assertThat(engine.validateJson(schemaA, data)).isEmpty();
+    assertThat(engine.validateJson(schemaA, data)).isEmpty();
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+
+    // evicts A, the engine has to compile it again
+    assertThat(engine.validateJson(schemaB, data)).hasSize(1);
+    assertThat(engine.validateJson(schemaA, data)).isEmpty();
+    assertThat(cache.missCount()).isEqualTo(3);
+    assertThat(cache.evictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  void expiredJsonSchemasAreCompiledAgain() {
+    final var schema = "{\"type\":\"object\"}";
+    final var cache = new JsonSchemaCache(16, 0, 16);
+    final var engine = ValidatorEngine.builder().jsonSchemaCache(cache).build();
+    final var data = "{}".getBytes(StandardCharsets.UTF_8);
+    engine.validateJson(schema, data);
+    await(() -> engine.isJsonSchemaCompiled(schema));
+    engine.validateJson(schema, data);
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(cache.hitCount()).isZero();
+  }
+
+  @Test
+  void metrics() {
+    final var events = Collections.synchronizedList(new ArrayList<String>());
+    final var engine = ValidatorEngine.builder().metrics(new ValidationMetrics() {
+      @Override
+      public void validated(final String schema, final ValidateType type, final boolean valid, final long nanos) {
+        events.add(schema + " " + type + " " + valid);
+      }
+
+      @Override
+      public void violation(final String schema, final String rule) {
+        events.add(schema + " " + rule);
+      }
+
+      @Override
+      public void fieldCount(final String schema, final int fields) {
+        events.add(schema + " fields " + fields);
+      }
+    }).build();
+    final var validator = validator(engine);
+
+    validator.validate(ValidateMapTest.ToTest.builder().schema(SCHEMA).data(DATA).build());
+    validator.validate(ValidateMapTest.ToTest.builder().schema(SCHEMA).data(Map.of("name", "foo")).build());
+
+    assertThat(events).containsExactly(
+      TO_TEST + " fields 2",
+      TO_TEST + " MAP true",
+      TO_TEST + " fields 1",
+      TO_TEST + " " + Violation.RULE_REQUIRED,
+      TO_TEST + " MAP false"
+    );
+  }
+
+  // waits until an entry with a timeout of 0 seconds expired, which happens with the next tick of nanoTime
+  private static void await(final BooleanSupplier live) {
+    while (live.getAsBoolean()) {
+      Thread.onSpinWait();
+    }
+  }
+
+}
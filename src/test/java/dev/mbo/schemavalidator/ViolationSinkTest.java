@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import dev.mbo.schemavalidator.fieldvalidator.IntegerFieldValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ViolationSinkTest {
+
+  private final FieldDefinition fieldDefinition = FieldDefinition.builder()
+    .type(Integer.class.getSimpleName())
+    .minValue(0L)
+    .build();
+
+  @Test
+  void reportsWithoutThrowing() {
+    final var check = new IntegerFieldValidator().bind(fieldDefinition);
+    try (final var sink = ViolationSink.acquire(2)) {
+      assertThat(check.check("age", 1, sink)).isTrue();
+      assertThat(check.check("age", -1, sink)).isFalse();
+      assertThat(sink.size()).isEqualTo(1);
+      final var violation = sink.get(0);
+      assertThat(violation.getKey()).isEqualTo("age");
+      assertThat(violation.getRule()).isEqualTo(Violation.RULE_MIN_VALUE);
+      assertThat(violation.getValue()).isEqualTo(-1);
+      assertThat(violation.getMessage()).isEqualTo("-1 is smaller than min value of 0");
+    }
+  }
+
+  @Test
+  void limit() {
+    final var sink = new ViolationSink(2);
+    assertThat(sink.report("a", Violation.RULE_REQUIRED, null, true)).isTrue();
+    assertThat(sink.report("b", Violation.RULE_REQUIRED, null, true)).isFalse();
+    assertThat(sink.report("c", Violation.RULE_REQUIRED, null, true)).isFalse();
+    assertThat(sink.isFull()).isTrue();
+    assertThat(sink.violations()).extracting(Violation::getKey).containsExactly("a", "b");
+  }
+
+  @Test
+  void pooledPerThread() {
+    final ViolationSink first;
+    try (final var sink = ViolationSink.acquire(1)) {
+      first = sink;
+      sink.report("a", Violation.RULE_REQUIRED, null, true);
+      try (final var nested = ViolationSink.acquire(1)) {
+        assertThat(nested).isNotSameAs(sink);
+      }
+    }
+    try (final var sink = ViolationSink.acquire(1)) {
+      assertThat(sink).isSameAs(first);
+      assertThat(sink.isEmpty()).isTrue();
+    }
+  }
+
+  @Test
+  void throwingAdapter() {
+    assertThatThrownBy(() -> new IntegerFieldValidator().validate("age", -1, fieldDefinition))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("-1 is smaller than min value of 0");
+
+    final FieldValidator<Object> legacy = new FieldValidator<>() {
+      @Override
+      public void validate(final String key, final Object data, final FieldDefinition fieldDefinition) {
+        throw new IllegalStateException("always invalid");
+      }
+
+      @Override
+      public Class<Object> supportsType() {
+        return Object.class;
+      }
+    };
+    final var sink = new ViolationSink(1);
+    assertThat(legacy.bind(fieldDefinition).check("foo", 1, sink)).isFalse();
+    assertThat(sink.get(0).getMessage()).isEqualTo("always invalid");
+  }
+
+}
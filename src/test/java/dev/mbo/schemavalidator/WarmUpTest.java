@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarmUpTest {
+
+  @Test
+  void preloadAndValidate(@TempDir final Path directory) throws Exception {
+    Files.writeString(directory.resolve("a.json"), "{\"type\":\"object\",\"required\":[\"a\"]}");
+    Files.writeString(directory.resolve("ignored.txt"), "no schema");
+    final var engine = ValidatorEngine.builder().build();
+
+    final var report = engine.warmUp(WarmUp.builder()
+      .jsonSchemaDirectory(directory)
+      .jsonSchemaResource("json_schema.json")
+      .jsonSchema("{\"type\":\"string\"}")
+      .mapSchema(ValidateMapTest.SHARED_SCHEMA)
+      .syntheticValidations(10)
+      .build());
+
+    assertThat(report.getJsonSchemas()).isEqualTo(3);
+    assertThat(report.getMapSchemas()).isEqualTo(1);
+    assertThat(report.getValidations()).isEqualTo(10 * (3 + 2));
+    assertThat(report.getTotalTime()).isEqualTo(report.getLoadTime().plus(report.getValidationTime()));
+    assertThat(engine.jsonSchemaCache().size()).isEqualTo(3);
+    assertThat(engine.compile(ValidateMapTest.SHARED_SCHEMA)).isSameAs(engine.compile(ValidateMapTest.SHARED_SCHEMA));
+  }
+
+  @Test
+  void missingResource() {
+    final var warmUp = WarmUp.builder().jsonSchemaResource("missing.json").build();
+    assertThatThrownBy(() -> ValidatorEngine.builder().build().warmUp(warmUp))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("missing.json");
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.Violation;
+import dev.mbo.schemavalidator.ViolationSink;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BigDecimalFieldValidatorTest {
+
+  private static final List<Object> VALUES = List.of(
+    "0", "-0", "+0", "0.00", "00.50", "-0.5", "1", "-1", "1.0", "1.5", "-1.5", "9.99", "10", "10.0", "10.01", "-10",
+    "-10.01", "-9.99", "123.456", "0.001", "1e1", "1E-1", "1.", ".5", "-", "", "a", "1.2.3", "1,5",
+    "1234567890123456789", "-1234567890123456789.5", 5, -11, 10L, 11L, 1.5
+  );
+
+  @Test
+  void lexicalFastPathAgreesWithBigDecimal() {
+    // double bounds disable the fast path, so both checks must come to the same result
+    final var fast = new BigDecimalFieldValidator().bind(
+      FieldDefinition.builder().type("BigDecimal").minValue(-10).maxValue(10).maxDigits(4).maxScale(2).build()
+    );
+    final var parsed = new BigDecimalFieldValidator().bind(
+      FieldDefinition.builder().type("BigDecimal").minDoubleValue(-10).maxDoubleValue(10).maxDigits(4).maxScale(2)
+        .build()
+    );
+    for (final var value : VALUES) {
+      try (final var fastSink = ViolationSink.acquire(1); final var parsedSink = ViolationSink.acquire(1)) {
+        assertThat(fast.check("salary", value, fastSink))
+          .as(String.valueOf(value))
+          .isEqualTo(parsed.check("salary", value, parsedSink));
+        assertThat(fastSink.violations()).extracting(Violation::getRule)
+          .as(String.valueOf(value))
+          .isEqualTo(parsedSink.violations().stream().map(Violation::getRule).collect(Collectors.toList()));
+      }
+    }
+  }
+
+  @Test
+  void digitsAndScale() {
+    final var check = new BigDecimalFieldValidator().bind(
+      FieldDefinition.builder().type("BigDecimal").maxDigits(6).maxScale(2).build()
+    );
+    try (final var sink = ViolationSink.acquire(2)) {
+      assertThat(check.check("salary", "2549.50", sink)).isTrue();
+      assertThat(check.check("salary", "25490.50", sink)).isFalse();
+      assertThat(check.check("salary", "254.505", sink)).isFalse();
+      assertThat(sink.get(0).getMessage()).isEqualTo("25490.50 has more than 6 digits");
+      assertThat(sink.get(1).getMessage()).isEqualTo("254.505 has more than 2 decimal places");
+    }
+  }
+
+}
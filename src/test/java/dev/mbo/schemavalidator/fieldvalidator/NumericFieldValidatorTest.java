@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import dev.mbo.schemavalidator.FieldDefinition;
+import dev.mbo.schemavalidator.NumericWidening;
+import dev.mbo.schemavalidator.Violation;
+import dev.mbo.schemavalidator.ViolationSink;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NumericFieldValidatorTest {
+
+  @Test
+  void exactByDefault() {
+    final var check = new LongFieldValidator().bind(FieldDefinition.builder().type("Long").build());
+    try (final var sink = ViolationSink.acquire(1)) {
+      assertThat(check.check("time", 1L, sink)).isTrue();
+      assertThat(check.check("time", 1, sink)).isFalse();
+      assertThat(sink.get(0).getRule()).isEqualTo(Violation.RULE_TYPE);
+    }
+  }
+
+  @Test
+  void losslessWidening() {
+    final var longCheck = new LongFieldValidator().bind(
+      FieldDefinition.builder().type("Long").widening(NumericWidening.LOSSLESS).maxValue(10L).build()
+    );
+    final var intCheck = new IntegerFieldValidator().bind(
+      FieldDefinition.builder().type("Integer").widening(NumericWidening.LOSSLESS).build()
+    );
+    final var doubleCheck = new DoubleFieldValidator().bind(
+      FieldDefinition.builder().type("Double").widening(NumericWidening.LOSSLESS).build()
+    );
+    try (final var sink = ViolationSink.acquire(10)) {
+      assertThat(longCheck.check("a", 1, sink)).isTrue();
+      assertThat(longCheck.check("a", (short) 1, sink)).isTrue();
+      assertThat(longCheck.check("a", 11, sink)).isFalse();
+      assertThat(longCheck.check("a", 1.0, sink)).isFalse();
+      assertThat(intCheck.check("b", 1L, sink)).isTrue();
+      assertThat(intCheck.check("b", Integer.MAX_VALUE + 1L, sink)).isFalse();
+      assertThat(doubleCheck.check("c", 1, sink)).isTrue();
+      assertThat(doubleCheck.check("c", 1.5f, sink)).isTrue();
+      assertThat(doubleCheck.check("c", (1L << 53) + 1, sink)).isFalse();
+      assertThat(sink.violations()).extracting(Violation::getRule).containsExactly(
+        Violation.RULE_MAX_VALUE, Violation.RULE_TYPE, Violation.RULE_TYPE, Violation.RULE_TYPE
+      );
+    }
+  }
+
+  @Test
+  void doubleBounds() {
+    final var check = new DoubleFieldValidator().bind(
+      FieldDefinition.builder().type("Double").minDoubleValue(0.5).maxDoubleValue(1.5).build()
+    );
+    try (final var sink = ViolationSink.acquire(2)) {
+      assertThat(check.check("zero", 0.5, sink)).isTrue();
+      assertThat(check.check("zero", 1.5, sink)).isTrue();
+      assertThat(check.check("zero", 0.4, sink)).isFalse();
+      assertThat(check.check("zero", 1.6, sink)).isFalse();
+      assertThat(sink.get(0).getMessage()).isEqualTo("0.4 is smaller than min value of 0.5");
+      assertThat(sink.get(1).getRule()).isEqualTo(Violation.RULE_MAX_VALUE);
+    }
+  }
+
+  @Test
+  void doubleBoundsOnIntegralField() {
+    final var check = new IntegerFieldValidator().bind(
+      FieldDefinition.builder().type("Integer").minDoubleValue(0.5).maxDoubleValue(2.5).build()
+    );
+    try (final var sink = ViolationSink.acquire(2)) {
+      assertThat(check.check("age", 0, sink)).isFalse();
+      assertThat(check.check("age", 1, sink)).isTrue();
+      assertThat(check.check("age", 2, sink)).isTrue();
+      assertThat(check.check("age", 3, sink)).isFalse();
+    }
+  }
+
+}
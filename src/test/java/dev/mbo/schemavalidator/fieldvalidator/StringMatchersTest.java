@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 mbo.dev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.mbo.schemavalidator.fieldvalidator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringMatchersTest {
+
+  private static final List<String> VALUES = List.of(
+    "", "a", "abc", "abcd", "ABC", "abc\n", "abc x", "a1_", "12", "1234", "12345", "a-b", "ä", "😀", " "
+  );
+
+  @Test
+  void fastMatchersAgreeWithRegex() {
+    final var regexes = List.of(
+      "abc", "^abc$", "abc.*", "^ab.*$", ".*", "[a-z]+", "[a-z0-9_]*", "[A-Z]{2,3}", "\\d{4}", "\\d+", "\\w+",
+      "[a-]+", "[-a-c]{1,}", ".{1,3}", ".?", "[0-9]"
+    );
+    for (final var regex : regexes) {
+      final var fast = StringMatchers.fastMatcher(regex);
+      assertThat(fast).as(regex).isNotNull();
+      for (final var value : VALUES) {
+        assertThat(fast.matches(value)).as(regex + " / " + value).isEqualTo(value.matches(regex));
+      }
+    }
+  }
+
+  @Test
+  void complexPatternsUseRegex() {
+    for (final var regex : List.of("a|b", "[^a]+", "(ab)+", "[a-z]+?", "(?i)abc", "[\\w-]+", "a\\.b")) {
+      assertThat(StringMatchers.fastMatcher(regex)).as(regex).isNull();
+      final var matcher = StringMatchers.compile(regex);
+      for (final var value : VALUES) {
+        assertThat(matcher.matches(value)).as(regex + " / " + value).isEqualTo(value.matches(regex));
+      }
+    }
+  }
+
+  @Test
+  void patternCache() {
+    final var cache = new PatternCache(2);
+    final var matcher = cache.get("[a-z]+");
+    assertThat(cache.get("[a-z]+")).isSameAs(matcher);
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.missCount()).isEqualTo(1);
+    cache.get("a+");
+    cache.get("b+");
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+}